@@ -1,8 +1,16 @@
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import arena.MastermindArena;
+import arena.MastermindEquivalenceHarness;
+import arena.MastermindLoadGenerator;
+import arena.MastermindShardCoordinator;
 import controller.MastermindController;
 import controller.MastermindIllegalColorException;
 import controller.MastermindIllegalLengthException;
 import javafx.application.Application;
 import model.MastermindModel;
+import solver.MastermindOptimalSolver;
 
 /**
  * 
@@ -24,6 +32,33 @@ import model.MastermindModel;
  *         "-window", the game is launched in a GUI window. If no command line
  *         argument is specified or it is something else, the default is the GUI
  *         window.
+ * 
+ *         If the command line argument is "-arena", the built-in strategies
+ *         play a tournament against each other and the leaderboard is printed.
+ *         It takes the number of games per bot and a seed as optional extra
+ *         arguments.
+ * 
+ *         If the command line argument is "-load", simulated players are run
+ *         against the game engine and a JSON latency report is written. It
+ *         takes the number of players, seconds to run, think time in
+ *         milliseconds, strategy, report file, batch size and batch delay in
+ *         microseconds as optional extra arguments; a batch size of 0 (the
+ *         default) scores guesses one at a time.
+ * 
+ *         If the command line argument is "-shard", a strategy is evaluated
+ *         against every secret of a board by several worker JVMs. It takes the
+ *         strategy, number of pegs, number of colors and number of workers as
+ *         optional extra arguments.
+ *
+ *         If the command line argument is "-optimal", the strategy with the
+ *         fewest guesses on average is computed and saved as a decision tree.
+ *         It takes the number of pegs, number of colors and tree file as
+ *         optional extra arguments.
+ *
+ *         If the command line argument is "-equivalence", the fast scoring
+ *         engines are checked against the original scoring code. It takes
+ *         the number of random pairs to check and a seed as optional extra
+ *         arguments.
  *
  */
 public class Mastermind {
@@ -34,9 +69,40 @@ public class Mastermind {
 	 * 
 	 * @param args command line arguments; none necessary for this program
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
 		if (args.length > 0 && args[0].equals("-text")) {
 			MastermindTextView.runTextView();
+		} else if (args.length > 0 && args[0].equals("-arena")) {
+			long gamesPerBot = args.length > 1 ? Long.parseLong(args[1]) : 100000;
+			long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+			MastermindArena.runArena(gamesPerBot, seed);
+		} else if (args.length > 0 && args[0].equals("-load")) {
+			int players = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+			int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+			long thinkTimeMillis = args.length > 3 ? Long.parseLong(args[3]) : 100;
+			String strategy = args.length > 4 ? args[4] : "random";
+			Path report = Paths.get(args.length > 5 ? args[5] : "mastermind-load.json");
+			int batchSize = args.length > 6 ? Integer.parseInt(args[6]) : 0;
+			long batchDelayMicros = args.length > 7 ? Long.parseLong(args[7]) : 5;
+			MastermindLoadGenerator.runLoad(players, seconds, thinkTimeMillis, strategy, report, batchSize,
+					batchDelayMicros * 1000);
+		} else if (args.length > 0 && args[0].equals("-shard")) {
+			String strategy = args.length > 1 ? args[1] : "minimax";
+			int pegs = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+			int colors = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+			int workers = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+			MastermindShardCoordinator.runShards(strategy, pegs, colors, workers);
+		} else if (args.length > 0 && args[0].equals("-optimal")) {
+			int pegs = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+			int colors = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+			Path file = Paths.get(args.length > 3 ? args[3] : "mastermind-" + pegs + "x" + colors + ".tree");
+			MastermindOptimalSolver.runOptimal(pegs, colors, file);
+		} else if (args.length > 0 && args[0].equals("-equivalence")) {
+			long pairs = args.length > 1 ? Long.parseLong(args[1]) : 100000000;
+			long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+			if (!MastermindEquivalenceHarness.runEquivalence(pairs, seed)) {
+				System.exit(1);
+			}
 		} else {
 			Application.launch(MastermindGUIView.class, args);
 		}
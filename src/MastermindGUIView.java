@@ -1,8 +1,18 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
-import controller.MastermindController;
+import java.util.List;
+import java.util.Map;
+
+import controller.MastermindEventPublisher;
+import controller.MastermindFeedback;
 import controller.MastermindIllegalColorException;
 import controller.MastermindIllegalLengthException;
+import controller.MastermindSession;
+import controller.MastermindSessionRegistry;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
@@ -20,6 +30,9 @@ import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
 import model.MastermindModel;
+import persistence.MastermindSnapshotStore;
+import solver.MastermindCodeSpace;
+import solver.MastermindGuessAnalyzer;
 
 /**
  * @author kaushalbhat
@@ -37,8 +50,15 @@ import model.MastermindModel;
  *         
  *         The user gets 10 attempts to guess the correct answer.
  *
+ *         The game in progress is saved to SNAPSHOT_FILE as it is played. If
+ *         the window is closed or the program dies mid-game, the next launch
+ *         shows the guesses made so far and the game carries on.
+ *
  */
 public class MastermindGUIView extends Application {
+	public static final Path SNAPSHOT_FILE = Paths.get("mastermind-window.snapshots");
+	public static final long SNAPSHOT_FLUSH_MILLIS = 1000;
+
 	private BorderPane window = new BorderPane();
 	private Button guessBtn = new Button("Guess");
 	private VBox centerBox = new VBox();
@@ -51,7 +71,10 @@ public class MastermindGUIView extends Application {
 	private int RCRP, RCWP;
 	private final Paint BACKGROUND_COLOR = Color.TAN;
 	MastermindModel model;
-	MastermindController controller;
+	MastermindSession session;
+	MastermindGuessAnalyzer analyzer = new MastermindGuessAnalyzer(MastermindCodeSpace.CLASSIC);
+	MastermindSnapshotStore store;
+	MastermindSessionRegistry registry;
 
 
 	/**
@@ -60,11 +83,12 @@ public class MastermindGUIView extends Application {
 	 */
 	@Override
 	public void start(Stage stage) throws Exception {
-		model = new MastermindModel();
-		controller = new MastermindController(model);
+		openSession();
+		analyzer.newGame();
 		setupBackground();
 		setupColors();
 		setupBottomPane();
+		showRestoredGuesses();
 
 		Scene scene = new Scene(window, 400, 600);
 		stage.setScene(scene);
@@ -72,6 +96,82 @@ public class MastermindGUIView extends Application {
 		stage.show();
 	}
 
+	/**
+	 * Closes the session registry and the snapshot store when the window
+	 * closes. A game still in progress stays saved and is picked up on the
+	 * next launch.
+	 */
+	@Override
+	public void stop() {
+		if (registry != null) {
+			registry.close();
+		}
+		if (store != null) {
+			try {
+				store.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Restores the game that was in progress, or starts a new one.
+	 * Opens the snapshot store and takes the first game it recovers, dropping
+	 * any others; if there is none, or the store cannot be opened, a new game
+	 * is started. Either way the game is held in a session registry that
+	 * saves it and lets it go once it has been left alone for the idle
+	 * timeout.
+	 */
+	private void openSession() {
+		try {
+			store = new MastermindSnapshotStore(SNAPSHOT_FILE, SNAPSHOT_FLUSH_MILLIS);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		if (store != null) {
+			List<MastermindSession> recovered = store.recover(MastermindEventPublisher.getDefault());
+			for (int i = 1; i < recovered.size(); i++) {
+				store.discard(recovered.get(i));
+			}
+			if (!recovered.isEmpty()) {
+				session = recovered.get(0);
+				model = session.getModel();
+			}
+		}
+		if (session == null) {
+			model = new MastermindModel();
+			session = new MastermindSession(model);
+			if (store != null) {
+				store.track(session);
+			}
+		}
+		registry = new MastermindSessionRegistry(MastermindSessionRegistry.DEFAULT_IDLE_TIMEOUT_MILLIS,
+				MastermindSessionRegistry.DEFAULT_TICK_MILLIS, store == null ? null : store::update);
+		registry.register(session);
+		registry.start();
+	}
+
+	/**
+	 * Shows the guesses of a restored game.
+	 * Puts each guess the session already has in the bottom bar and makes its
+	 * row, as if it had just been made, then clears the bottom bar.
+	 */
+	private void showRestoredGuesses() {
+		for (String guess : session.getGuesses()) {
+			for (int i = 0; i < 4; i++) {
+				for (Map.Entry<Integer, Character> color : colorCharMap.entrySet()) {
+					if (color.getValue() == guess.charAt(i)) {
+						curGuessColors.put(guessChoices[i], color.getKey());
+						guessChoices[i].setFill(colorMap.get(color.getKey()));
+					}
+				}
+			}
+			makeNewGuessRow();
+		}
+		resetGuessCircles();
+	}
+
 	/**
 	 * Initializes colorMap and colorCharMap.
 	 * Initializes the colorMap, which maps integers to the colors Paint objects they
@@ -152,7 +252,7 @@ public class MastermindGUIView extends Application {
 			makeNewGuessRow();
 			if (guessIsCorrect()) {
 				endGameWithAlert("You won!");
-			} else if (numGuesses >= 10) {
+			} else if (session.isOver()) {
 				endGameWithAlert("You lost!");
 			}
 		} else {
@@ -168,7 +268,8 @@ public class MastermindGUIView extends Application {
 	/**
 	 * Ends the game with an alert.
 	 * Ends the game with a dialogue box showing an alert that can be customized
-	 * by the parameter. 
+	 * by the parameter, followed by how good the player's guesses were. The
+	 * ratings may still be being worked out, so they are filled in once ready.
 	 * @param string The string to be displayed in the alert.
 	 */
 	private void endGameWithAlert(String string) {
@@ -176,23 +277,19 @@ public class MastermindGUIView extends Application {
 		Alert a = new Alert(Alert.AlertType.INFORMATION);
 		a.setTitle("Message");
 		a.setHeaderText("Message");
-		a.setContentText(string);
+		a.setContentText(string + "\n\nRating your guesses...");
+		analyzer.summarize().whenComplete((summary, failure) -> Platform.runLater(() -> a.setContentText(
+				string + "\n\n" + (failure == null ? summary : "Your guesses could not be rated."))));
 		a.showAndWait();
 	}
 
 	/**
 	 * Checks if the guess is correct.
-	 * Checks if the current guess in the bottom bar is correct.
+	 * Checks if the guess that was just scored by the session is correct.
 	 * @return true if the guess is correct, false otherwise.
 	 */
 	private boolean guessIsCorrect() {
-		String guess = getGuessAsString();
-		try {
-			return controller.isCorrect(guess);
-		} catch (MastermindIllegalLengthException | MastermindIllegalColorException e) {
-			e.printStackTrace();
-		}
-		return false;
+		return session.isWon();
 	}
 
 	/**
@@ -306,11 +403,16 @@ public class MastermindGUIView extends Application {
 		// Specification says 5px Insets, but 10 looks more centered imo.
 		guessStats.setPadding(new Insets(10));
 
-		// Getting RCRP and RCWP
+		// Scoring the guess with the session and getting RCRP and RCWP. A
+		// restored guess was scored before the restart.
 		String guess = getGuessAsString();
 		try {
-			RCRP = controller.getRightColorRightPlace(guess);
-			RCWP = controller.getRightColorWrongPlace(guess);
+			MastermindFeedback feedback = numGuesses <= session.getGuessesUsed()
+					? session.getFeedback().get(numGuesses - 1)
+					: session.submitGuess(guess);
+			RCRP = feedback.getRightColorRightPlace();
+			RCWP = feedback.getRightColorWrongPlace();
+			analyzer.rate(guess, RCRP, RCWP);
 		} catch (MastermindIllegalLengthException | MastermindIllegalColorException e) {
 			e.printStackTrace();
 		}
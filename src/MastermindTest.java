@@ -1,11 +1,50 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
 import org.junit.jupiter.api.Test;
 
+import arena.MastermindArena;
+import arena.MastermindBatchGuessScorer;
+import arena.MastermindEquivalenceHarness;
+import arena.MastermindLatencyHistogram;
+import arena.MastermindShardCoordinator;
+import arena.MastermindShardWorker;
 import controller.MastermindController;
+import controller.MastermindEvent;
+import controller.MastermindEventPublisher;
+import controller.MastermindFeedback;
 import controller.MastermindIllegalColorException;
 import controller.MastermindIllegalLengthException;
+import controller.MastermindSession;
+import controller.MastermindSessionRegistry;
 import model.MastermindModel;
+import persistence.MastermindSnapshot;
+import persistence.MastermindSnapshotStore;
+import solver.MastermindBatchScorer;
+import solver.MastermindCodeSpace;
+import solver.MastermindDecisionTree;
+import solver.MastermindDecisionTreeStrategy;
+import solver.MastermindFeedbackCache;
+import solver.MastermindGuessAnalyzer;
+import solver.MastermindGuessRating;
+import solver.MastermindMinimaxStrategy;
+import solver.MastermindOptimalSolver;
+import solver.MastermindStrategies;
+import solver.MastermindStrategy;
+import solver.MastermindSymmetry;
 
 /**
  * This class collects all of the test methods for our controller.
@@ -181,4 +220,603 @@ class MastermindTest {
 		MastermindModel answer = new MastermindModel();
 	}
 
+	/**
+	 * Test method for {@link MastermindSession#submitGuess(java.lang.String)} and
+	 * the events it publishes.
+	 */
+	@Test
+	void testSessionEvents() throws Exception {
+		List<MastermindEvent> events = new ArrayList<MastermindEvent>();
+		CountDownLatch done = new CountDownLatch(1);
+		MastermindEventPublisher publisher = new MastermindEventPublisher();
+		publisher.subscribe(new Flow.Subscriber<MastermindEvent>() {
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscription.request(Long.MAX_VALUE);
+			}
+
+			public void onNext(MastermindEvent event) {
+				events.add(event);
+			}
+
+			public void onError(Throwable throwable) {
+				done.countDown();
+			}
+
+			public void onComplete() {
+				done.countDown();
+			}
+		});
+
+		MastermindSession session = new MastermindSession(new MastermindModel("royg"), publisher);
+		// Listeners run without the session's lock, so other threads can
+		// read the session meanwhile
+		List<Integer> seen = new ArrayList<Integer>();
+		session.addChangeListener(changed -> seen.add(
+				CompletableFuture.supplyAsync(changed::getGuessesUsed).orTimeout(5, TimeUnit.SECONDS).join()));
+
+		// An invalid guess should not use up a guess
+		assertThrows(MastermindIllegalColorException.class, () -> session.submitGuess("xxxx"));
+		assertEquals(session.getGuessesUsed(), 0);
+
+		assertEquals(session.submitGuess("gyob").getRightColorWrongPlace(), 3);
+		assertFalse(session.isOver());
+		assertEquals(session.submitGuess("royg").getRightColorRightPlace(), 4);
+		assertTrue(session.isWon());
+		assertThrows(IllegalStateException.class, () -> session.submitGuess("royg"));
+		assertEquals(seen, List.of(1, 2));
+
+		publisher.close();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(events.size(), 4);
+		assertEquals(events.get(0).getType(), MastermindEvent.Type.GAME_STARTED);
+		assertEquals(events.get(1).getType(), MastermindEvent.Type.GUESS_SCORED);
+		assertEquals(events.get(2).getGuess(), "royg");
+		assertEquals(events.get(3).getType(), MastermindEvent.Type.GAME_WON);
+	}
+
+	/**
+	 * Test method for {@link MastermindArena#run()}. Every secret is played once
+	 * by the minimax bot, which should solve all of them in at most 5 guesses.
+	 * A bot fed feedback that no code fits gives up, and its games count as
+	 * unsolved.
+	 */
+	@Test
+	void testArena() {
+		MastermindArena arena = new MastermindArena(42, 2000, 100);
+		arena.addBot("minimax", MastermindStrategies.getFactory("minimax", MastermindCodeSpace.CLASSIC));
+		arena.addBot("consistent", MastermindStrategies.getFactory("consistent", MastermindCodeSpace.CLASSIC));
+		List<MastermindArena.Standing> standings = arena.run();
+
+		assertEquals(standings.size(), 2);
+		assertEquals(standings.get(0).getName(), "minimax");
+		assertEquals(standings.get(0).getGames(), 2000);
+		assertEquals(standings.get(0).getFailureRate(), 0.0, 0.0);
+		assertTrue(standings.get(0).getWorstCase() <= 5);
+		assertTrue(standings.get(0).getMeanGuesses() < standings.get(1).getMeanGuesses());
+
+		MastermindStrategy minimax = MastermindStrategies.getFactory("minimax", MastermindCodeSpace.CLASSIC).get();
+		minimax.newGame();
+		minimax.feedback("rrrr", 3, 1);
+		assertThrows(IllegalStateException.class, minimax::nextGuess);
+
+		MastermindArena confused = new MastermindArena(42, 200, 100);
+		confused.addBot("confused", () -> new MastermindStrategy() {
+			private final MastermindStrategy inner = MastermindStrategies.getFactory("consistent",
+					MastermindCodeSpace.CLASSIC).get();
+
+			public void newGame() {
+				inner.newGame();
+			}
+
+			public String nextGuess() {
+				return inner.nextGuess();
+			}
+
+			public void feedback(String guess, int rightColorRightPlace, int rightColorWrongPlace) {
+				inner.feedback(guess, 3, 1);
+			}
+		});
+		assertEquals(confused.run().get(0).getFailureRate(), 1.0, 0.0);
+	}
+
+	/**
+	 * Test method for {@link MastermindArena#run()}. The random bot is seeded
+	 * from the tournament seed, so two arenas with the same seed give the same
+	 * standings however the games are shared out between threads.
+	 */
+	@Test
+	void testArenaReproducible() {
+		double[] means = new double[2];
+		for (int i = 0; i < means.length; i++) {
+			MastermindArena arena = new MastermindArena(7, 1000, 10 + 90 * i);
+			arena.addBot("random", MastermindStrategies.getFactory("random", MastermindCodeSpace.CLASSIC));
+			means[i] = arena.run().get(0).getMeanGuesses();
+		}
+		assertEquals(means[0], means[1], 0.0);
+		assertThrows(IllegalArgumentException.class, () -> new MastermindArena(7, 1000, 0));
+	}
+
+	/**
+	 * Test method for {@link MastermindLatencyHistogram}. Values below 64 are
+	 * exact and larger ones are rounded to their bucket; a stall recorded with
+	 * recordCorrected() also charges every request the caller could not send
+	 * while it waited.
+	 */
+	@Test
+	void testLatencyHistogram() {
+		MastermindLatencyHistogram histogram = new MastermindLatencyHistogram();
+		for (int value = 1; value <= 100; value++) {
+			histogram.record(value);
+		}
+		assertEquals(histogram.getCount(), 100);
+		assertEquals(histogram.getMean(), 50.5, 1e-9);
+		assertEquals(histogram.getValueAtPercentile(50), 50);
+		assertEquals(histogram.getValueAtPercentile(99), 99);
+		assertEquals(histogram.getValueAtPercentile(100), 100);
+		assertEquals(histogram.getMax(), 100);
+
+		// One request every 16 ns stalled for 60 ns: the three sent late
+		// waited 44, 28 and 12 ns.
+		MastermindLatencyHistogram corrected = new MastermindLatencyHistogram();
+		corrected.recordCorrected(60, 16);
+		assertEquals(corrected.getCount(), 4);
+		assertEquals(corrected.getMean(), 36.0, 1e-9);
+		assertEquals(corrected.getValueAtPercentile(25), 12);
+		assertEquals(corrected.getValueAtPercentile(50), 28);
+		assertEquals(corrected.getValueAtPercentile(100), 60);
+		corrected.recordCorrected(16, 16);
+		corrected.recordCorrected(500, 0);
+		assertEquals(corrected.getCount(), 6);
+		assertEquals(corrected.getMax(), 500);
+	}
+
+	/**
+	 * Test method for {@link MastermindSnapshotStore}. Games in progress should
+	 * come back after the store is closed and reopened; finished and
+	 * discarded games should not.
+	 */
+	@Test
+	void testSnapshotRecovery() throws Exception {
+		Path file = Files.createTempFile("mastermind", ".snapshots");
+		MastermindSnapshotStore store = new MastermindSnapshotStore(file, 10);
+		MastermindSession playing = new MastermindSession(new MastermindModel("royg"), null);
+		MastermindSession finished = new MastermindSession(new MastermindModel("bbpp"), null);
+		MastermindSession dropped = new MastermindSession(new MastermindModel("yyyy"), null);
+		store.track(playing);
+		store.track(finished);
+		store.track(dropped);
+		playing.submitGuess("gyob");
+		playing.submitGuess("rrrr");
+		finished.submitGuess("oooo");
+		store.flush();
+		finished.submitGuess("bbpp");
+		store.close();
+
+		store = new MastermindSnapshotStore(file, 10);
+		List<MastermindSession> sessions = store.recover(null);
+		assertEquals(sessions.size(), 2);
+		for (MastermindSession session : sessions) {
+			if (session.getId() == dropped.getId()) {
+				store.discard(session);
+			}
+		}
+		store.close();
+
+		store = new MastermindSnapshotStore(file, 10);
+		sessions = store.recover(null);
+		store.close();
+		Files.delete(file);
+
+		assertEquals(sessions.size(), 1);
+		MastermindSession restored = sessions.get(0);
+		assertEquals(restored.getId(), playing.getId());
+		assertEquals(restored.getGuesses(), playing.getGuesses());
+		assertEquals(restored.getFeedback(), playing.getFeedback());
+		assertEquals(restored.submitGuess("royg").getRightColorRightPlace(), 4);
+	}
+
+	/**
+	 * Test method for {@link MastermindSnapshotStore}. Opening a store should
+	 * reserve the ids of the saved games straight away, so a session made
+	 * before recover() cannot be given one of them.
+	 */
+	@Test
+	void testSnapshotReservesIds() throws Exception {
+		// A game saved by an earlier run, with an id this run has not reached
+		long savedId = 1L << 40;
+		ByteBuffer record = ByteBuffer.allocate(MastermindSnapshot.SIZE);
+		MastermindSnapshot.of(new MastermindSession(new MastermindModel("royg"), null)).writeTo(record);
+		record.putLong(0, savedId);
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), 0, MastermindSnapshot.SIZE - 4);
+		record.putInt(MastermindSnapshot.SIZE - 4, (int) crc.getValue());
+		Path file = Files.createTempFile("mastermind", ".snapshots");
+		Files.write(file, record.array());
+
+		MastermindSnapshotStore store = new MastermindSnapshotStore(file, 10);
+		MastermindSession created = new MastermindSession(new MastermindModel("bbpp"), null);
+		List<MastermindSession> sessions = store.recover(null);
+		store.close();
+		Files.delete(file);
+
+		assertEquals(sessions.size(), 1);
+		assertEquals(sessions.get(0).getId(), savedId);
+		assertTrue(created.getId() > savedId);
+	}
+
+	/**
+	 * Test method for {@link MastermindFeedbackCache}. With a memory cap of
+	 * four small tiles, every score should still match the code space while
+	 * tiles are evicted and reused, whether the tiles are square or rows.
+	 */
+	@Test
+	void testFeedbackCache() {
+		MastermindCodeSpace space = new MastermindCodeSpace(5, 4);
+		MastermindFeedbackCache cache = new MastermindFeedbackCache(space, 100, 4 * 100 * 100);
+		for (int guess = 0; guess < space.size(); guess += 7) {
+			for (int secret = 0; secret < space.size(); secret++) {
+				assertEquals(cache.score(guess, secret), space.score(guess, secret));
+			}
+		}
+		assertTrue(cache.getTileCount() <= 4);
+		assertTrue(cache.getEvictions() > 0);
+
+		int[] candidates = new int[space.size()];
+		for (int i = 0; i < candidates.length; i++) {
+			candidates[i] = i;
+		}
+		int[] expected = candidates.clone();
+		int feedback = space.feedback(2, 1);
+		int kept = space.filter(321, feedback, expected, expected.length);
+		assertEquals(cache.filter(321, feedback, candidates, candidates.length), kept);
+		assertArrayEquals(candidates, expected);
+
+		// Row tiles: a filter works out only the row it reads, and filtering
+		// with the same guess again works nothing out
+		MastermindFeedbackCache rows = new MastermindFeedbackCache(space, 1, 100, 16 * 100);
+		for (int guess = 0; guess < space.size(); guess += 5) {
+			for (int secret = 0; secret < space.size(); secret += 3) {
+				assertEquals(rows.score(guess, secret), space.score(guess, secret));
+			}
+		}
+		for (int i = 0; i < candidates.length; i++) {
+			candidates[i] = i;
+		}
+		assertEquals(rows.filter(321, feedback, candidates, candidates.length), kept);
+		long misses = rows.getMisses();
+		for (int i = 0; i < candidates.length; i++) {
+			candidates[i] = i;
+		}
+		assertEquals(rows.filter(321, feedback, candidates, candidates.length), kept);
+		assertEquals(rows.getMisses(), misses);
+
+		// Readers take no lock, so threads sharing the cache must still see
+		// the right scores while it keeps evicting under them.
+		List<CompletableFuture<Boolean>> readers = new ArrayList<CompletableFuture<Boolean>>();
+		for (int t = 0; t < 4; t++) {
+			int offset = t;
+			readers.add(CompletableFuture.supplyAsync(() -> {
+				for (int i = 0; i < 20000; i++) {
+					int guess = (i * 131 + offset * 17) % space.size();
+					int secret = (i * 379 + offset * 53) % space.size();
+					if (cache.score(guess, secret) != space.score(guess, secret)) {
+						return false;
+					}
+				}
+				return true;
+			}));
+		}
+		for (CompletableFuture<Boolean> reader : readers) {
+			assertTrue(reader.join());
+		}
+
+		assertSame(MastermindStrategies.getScorer(MastermindCodeSpace.CLASSIC), MastermindCodeSpace.CLASSIC);
+		assertTrue(MastermindStrategies.getScorer(new MastermindCodeSpace(6, 9)) instanceof MastermindFeedbackCache);
+	}
+
+	/**
+	 * Test method for {@link MastermindSymmetry}. Every first guess should be in
+	 * one of five classes, and minimax with symmetry reduction should play
+	 * exactly the same games as without it.
+	 */
+	@Test
+	void testSymmetryReduction() {
+		MastermindCodeSpace space = MastermindCodeSpace.CLASSIC;
+		MastermindSymmetry firstGuess = new MastermindSymmetry(space, new int[0], 0);
+		assertEquals(firstGuess.getRepresentatives().length, 5);
+		assertEquals(firstGuess.canonical(space.fromString("gbgb")), space.fromString("rroo"));
+
+		MastermindCodeSpace small = new MastermindCodeSpace(4, 5);
+		MastermindStrategy reduced = new MastermindMinimaxStrategy(small, small, true);
+		MastermindStrategy full = new MastermindMinimaxStrategy(small, small, false);
+		for (int secret = 0; secret < small.size(); secret += 13) {
+			reduced.newGame();
+			full.newGame();
+			for (int guesses = 0; guesses < 8; guesses++) {
+				String guess = reduced.nextGuess();
+				assertEquals(guess, full.nextGuess());
+				int feedback = small.score(small.fromString(guess), secret);
+				if (feedback == small.getWinningFeedback()) {
+					break;
+				}
+				reduced.feedback(guess, small.getBlack(feedback), small.getWhite(feedback));
+				full.feedback(guess, small.getBlack(feedback), small.getWhite(feedback));
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link MastermindShardCoordinator#run()}. Two worker JVMs
+	 * should produce the same histogram as evaluating in this JVM, the random
+	 * bot included since its games are seeded by shard, and a run whose
+	 * workers keep missing the deadline should fail rather than hang.
+	 */
+	@Test
+	void testShardedEvaluation() throws Exception {
+		MastermindCodeSpace space = new MastermindCodeSpace(3, 5);
+		MastermindShardCoordinator coordinator = new MastermindShardCoordinator("minimax", space, 10, 2, 8, 3,
+				new ArrayList<String>());
+		long[] expected = MastermindShardWorker.evaluate(
+				MastermindStrategies.getFactory("minimax", space).get(), space, 0, space.size(), 8);
+		assertTrue(java.util.Arrays.equals(coordinator.run(), expected));
+		assertEquals(coordinator.getRetries(), 0);
+
+		MastermindStrategy random = MastermindStrategies.getFactory("random", space).get();
+		long[] randomExpected = new long[9];
+		for (int shard = 0; shard * 10 < space.size(); shard++) {
+			long[] counts = MastermindShardWorker.evaluate(random, space, shard * 10,
+					Math.min(space.size(), shard * 10 + 10), 8, shard);
+			for (int i = 0; i < counts.length; i++) {
+				randomExpected[i] += counts[i];
+			}
+		}
+		coordinator = new MastermindShardCoordinator("random", space, 10, 2, 8, 3, new ArrayList<String>());
+		assertTrue(java.util.Arrays.equals(coordinator.run(), randomExpected));
+
+		MastermindShardCoordinator hung = new MastermindShardCoordinator("minimax", space, 10, 1, 8, 2, 1,
+				new ArrayList<String>());
+		assertThrows(java.io.IOException.class, hung::run);
+		// Every one of the 13 shards was killed once and handed out again
+		assertEquals(hung.getRetries(), 13);
+	}
+
+	/**
+	 * Test method for {@link MastermindOptimalSolver#solve()}. The tree should
+	 * take the known optimal number of guesses, survive being saved and read
+	 * back, and come out the same whichever thread finds each first guess.
+	 * The "optimal" strategy should play it too, solving each board once.
+	 */
+	@Test
+	void testOptimalSolver() throws Exception {
+		// 73 guesses over all 27 secrets, as found by exhaustive search
+		MastermindCodeSpace space = new MastermindCodeSpace(3, 3);
+		MastermindDecisionTree tree = new MastermindOptimalSolver(space).solve();
+		assertEquals(tree.getTotalGuesses(), 73);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		MastermindDecisionTree again = pool.submit(() -> new MastermindOptimalSolver(space).solve()).get();
+		pool.shutdown();
+		assertEquals(again.getGuess(0), tree.getGuess(0));
+		assertEquals(again.getNodeCount(), tree.getNodeCount());
+
+		Path file = Files.createTempFile("mastermind", ".tree");
+		try {
+			tree.write(file);
+			tree = MastermindDecisionTree.read(file);
+		} finally {
+			Files.delete(file);
+		}
+		long[] counts = MastermindShardWorker.evaluate(new MastermindDecisionTreeStrategy(tree), space, 0,
+				space.size(), 10);
+		long total = 0;
+		for (int i = 1; i < counts.length; i++) {
+			total += i * counts[i];
+		}
+		assertEquals(counts[0], 0);
+		assertEquals(total, 73);
+
+		assertTrue(MastermindStrategies.getNames().contains("optimal"));
+		Supplier<MastermindStrategy> optimal = MastermindStrategies.getFactory("optimal", space);
+		counts = MastermindShardWorker.evaluate(optimal.get(), space, 0, space.size(), 10);
+		total = 0;
+		for (int i = 1; i < counts.length; i++) {
+			total += i * counts[i];
+		}
+		assertEquals(total, 73);
+		assertSame(MastermindStrategies.getOptimalTree(new MastermindCodeSpace(3, 3)),
+				MastermindStrategies.getOptimalTree(space));
+	}
+
+	/**
+	 * Test method for {@link MastermindEquivalenceHarness}. The built-in
+	 * engines should agree with the original scoring code, and a broken
+	 * engine should be caught and its mismatch shrunk to a single peg.
+	 */
+	@Test
+	void testEquivalenceHarness() {
+		MastermindEquivalenceHarness harness = new MastermindEquivalenceHarness();
+		harness.addDefaultEngines();
+		assertNull(harness.checkExhaustive(MastermindCodeSpace.CLASSIC));
+		assertNull(harness.checkRandom(new MastermindCodeSpace(6, 9), 20000, 1));
+
+		// Wrong only when both first pegs are yellow; minimizes to y against y
+		harness.addEngine("broken", space -> (guess, secret) -> space.colorAt(guess, 0) == 2
+				&& space.colorAt(secret, 0) == 2 ? space.feedback(0, 0) : space.score(guess, secret));
+		MastermindEquivalenceHarness.Mismatch mismatch = harness.checkExhaustive(MastermindCodeSpace.CLASSIC);
+		assertNotNull(mismatch);
+		assertEquals(mismatch.getEngine(), "broken");
+		assertEquals(mismatch.getSpace().toString(), "1x3");
+		assertEquals(mismatch.getSpace().toString(mismatch.getGuess()), "y");
+		assertEquals(mismatch.getSecrets().length, 1);
+	}
+
+	/**
+	 * Test method for {@link MastermindSessionRegistry}. A session should be
+	 * evicted once it goes idle for the timeout, a guess should push its
+	 * timeout back, and a finished game should be removed straight away. A
+	 * guess on a session that has been evicted should not bring it back.
+	 */
+	@Test
+	void testSessionExpiry() throws Exception {
+		long[] now = { 0 };
+		List<MastermindSession> evicted = new ArrayList<MastermindSession>();
+		MastermindSessionRegistry registry = new MastermindSessionRegistry(1000, 10, evicted::add, () -> now[0]);
+		MastermindSession idle = new MastermindSession(new MastermindModel("rrrr"), null);
+		MastermindSession active = new MastermindSession(new MastermindModel("rrrr"), null);
+		MastermindSession finished = new MastermindSession(new MastermindModel("rrrr"), null);
+		registry.register(idle);
+		registry.register(active);
+		registry.register(finished);
+
+		now[0] = 600;
+		active.submitGuess("oooo");
+		finished.submitGuess("rrrr");
+		assertEquals(registry.size(), 2);
+		assertNull(registry.get(finished.getId()));
+
+		now[0] = 1010;
+		assertEquals(registry.expireIdleSessions(), 1);
+		assertEquals(evicted.size(), 1);
+		assertTrue(evicted.get(0) == idle);
+		assertNull(registry.get(idle.getId()));
+		assertTrue(registry.get(active.getId()) == active);
+		idle.submitGuess("oooo");
+		assertNull(registry.get(idle.getId()));
+		assertEquals(registry.size(), 1);
+
+		now[0] = 1610;
+		assertEquals(registry.expireIdleSessions(), 1);
+		assertEquals(registry.size(), 0);
+		assertEquals(registry.getExpiredCount(), 2);
+		registry.close();
+
+		assertThrows(IllegalArgumentException.class, () -> new MastermindSessionRegistry(1000, 0, null, () -> 0));
+	}
+
+	/**
+	 * Test method for {@link MastermindBatchScorer}. Batched scores should
+	 * match the code space's, a session scoring through it should record its
+	 * guesses off the dispatcher thread, and every request should be counted
+	 * in exactly one batch.
+	 */
+	@Test
+	void testBatchScorer() throws Exception {
+		MastermindCodeSpace space = MastermindCodeSpace.CLASSIC;
+		MastermindBatchScorer scorer = new MastermindBatchScorer(space, 32, 200000);
+		List<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>();
+		for (int guess = 0; guess < space.size(); guess += 7) {
+			futures.add(scorer.submit(guess, space.size() - 1 - guess));
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			assertEquals((int) futures.get(i).get(), space.score(i * 7, space.size() - 1 - i * 7));
+		}
+
+		int[] secrets = { 0, 5, 17, 300, 1295 };
+		int[] scores = new int[secrets.length];
+		scorer.scoreAll(100, secrets, secrets.length, scores);
+		for (int i = 0; i < secrets.length; i++) {
+			assertEquals(scores[i], space.score(100, secrets[i]));
+		}
+
+		MastermindBatchGuessScorer guessScorer = new MastermindBatchGuessScorer(scorer);
+		MastermindSession session = new MastermindSession(new MastermindModel("rygb"), null);
+		List<String> recordedOn = new ArrayList<String>();
+		session.addChangeListener(changed -> recordedOn.add(Thread.currentThread().getName()));
+		MastermindFeedback feedback = session.submitGuess("ryby", guessScorer).get();
+		assertEquals(feedback.getRightColorRightPlace(), 2);
+		assertEquals(feedback.getRightColorWrongPlace(), 1);
+		assertTrue(session.submitGuess("rygb", guessScorer).get(5, TimeUnit.SECONDS).getRightColorRightPlace() == 4);
+		assertTrue(session.isWon());
+		assertFalse(recordedOn.contains("mastermind-batch-scorer"));
+		assertThrows(MastermindIllegalColorException.class, () -> new MastermindSession(new MastermindModel("rygb"),
+				null).submitGuess("rygx", guessScorer));
+		scorer.close();
+		assertThrows(IllegalStateException.class, () -> scorer.submit(0, 0));
+
+		long batched = 0;
+		long[] counts = scorer.getBatchSizeCounts();
+		for (int size = 1; size < counts.length; size++) {
+			batched += size * counts[size];
+		}
+		assertEquals(batched, futures.size() + secrets.length + 2);
+		assertEquals(scorer.getScoredCount(), futures.size() + secrets.length + 2);
+		assertTrue(scorer.getMeanBatchSize() >= 1);
+	}
+
+	/**
+	 * Test method for {@link MastermindGuessAnalyzer}. Guesses should be rated
+	 * against the candidates left by the earlier feedback, rate() should not
+	 * wait for the best guess to be found, and each set of candidates should
+	 * only be searched once. A search that fails should not hold up the
+	 * summary or stay cached.
+	 */
+	@Test
+	void testGuessAnalyzer() throws Exception {
+		MastermindSession session = new MastermindSession(new MastermindModel("bgyr"), null);
+		MastermindGuessAnalyzer analyzer = new MastermindGuessAnalyzer(MastermindCodeSpace.CLASSIC);
+		analyzer.newGame();
+		List<MastermindGuessRating> ratings = new ArrayList<MastermindGuessRating>();
+		for (String guess : new String[] { "rrrr", "oooo", "rrrr", "bgyr" }) {
+			MastermindFeedback feedback = session.submitGuess(guess);
+			ratings.add(analyzer.rate(guess, feedback.getRightColorRightPlace(), feedback.getRightColorWrongPlace())
+					.whenCompared().get(30, TimeUnit.SECONDS));
+		}
+
+		// rrrr: 1 right place; 4 * 5^3 of the 1296 codes have exactly one r
+		assertEquals(ratings.get(0).getCandidatesBefore(), 1296);
+		assertEquals(ratings.get(0).getCandidatesAfter(), 500);
+		assertTrue(ratings.get(0).isConsistent());
+		assertTrue(ratings.get(0).getEfficiency() < 1);
+		assertEquals(ratings.get(1).getCandidatesAfter(), 4 * 4 * 4 * 4);
+		assertTrue(!ratings.get(1).isConsistent());
+		// Repeating a guess rules nothing out
+		assertEquals(ratings.get(2).getEliminated(), 0);
+		assertEquals(ratings.get(2).getEfficiency(), 0.0);
+		assertTrue(ratings.get(3).isConsistent());
+		assertEquals(analyzer.getNumCandidates(), 1);
+
+		assertTrue(analyzer.summarize().get(30, TimeUnit.SECONDS).startsWith("2 of 4 guesses"));
+
+		// The best guess is rated as efficient as can be
+		analyzer.newGame();
+		String best = analyzer.rate("rrrr", 1, 0).whenCompared().get(30, TimeUnit.SECONDS).getBestGuess();
+		analyzer.newGame();
+		assertEquals(analyzer.rate(best, 0, 0).whenCompared().get(30, TimeUnit.SECONDS).getEfficiency(), 1.0);
+
+		// Searches wait on an executor that has not run them yet
+		MastermindCodeSpace space = new MastermindCodeSpace(3, 5);
+		List<Runnable> pending = new ArrayList<Runnable>();
+		MastermindGuessAnalyzer waiting = new MastermindGuessAnalyzer(space, pending::add);
+		waiting.newGame();
+		MastermindGuessRating rating = waiting.rate("rrr", 0, 0);
+		assertFalse(rating.isCompared());
+		assertNull(rating.getBestGuess());
+		assertEquals(rating.getCandidatesAfter(), 4 * 4 * 4);
+		assertEquals(pending.size(), 2);
+		pending.remove(0).run();
+		assertTrue(rating.isCompared());
+		assertNotNull(rating.getBestGuess());
+
+		// The opening was searched once; a second analyzer reuses it
+		MastermindGuessAnalyzer again = new MastermindGuessAnalyzer(space, pending::add);
+		again.newGame();
+		assertTrue(again.rate("ooo", 0, 0).isCompared());
+		assertEquals(pending.size(), 2);
+
+		// A search that cannot run leaves its ratings uncompared, the summary
+		// still comes, and the search is tried again next time
+		MastermindCodeSpace small = new MastermindCodeSpace(2, 4);
+		MastermindGuessAnalyzer rejecting = new MastermindGuessAnalyzer(small, task -> {
+			throw new RejectedExecutionException();
+		});
+		rejecting.newGame();
+		MastermindGuessRating unrated = rejecting.rate("rr", 0, 0);
+		assertFalse(unrated.isCompared());
+		assertTrue(unrated.whenCompared().isCompletedExceptionally());
+		assertTrue(rejecting.summarize().get(30, TimeUnit.SECONDS).endsWith("could not be worked out."));
+		pending.clear();
+		MastermindGuessAnalyzer retried = new MastermindGuessAnalyzer(small, pending::add);
+		retried.newGame();
+		assertEquals(pending.size(), 1);
+	}
+
 }
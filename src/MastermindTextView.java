@@ -1,9 +1,19 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Scanner;
 
-import controller.MastermindController;
+import controller.MastermindEventPublisher;
+import controller.MastermindFeedback;
 import controller.MastermindIllegalColorException;
 import controller.MastermindIllegalLengthException;
+import controller.MastermindSession;
+import controller.MastermindSessionRegistry;
 import model.MastermindModel;
+import persistence.MastermindSnapshotStore;
+import solver.MastermindCodeSpace;
+import solver.MastermindGuessAnalyzer;
 
 /**
  * @author kaushalbhat
@@ -17,9 +27,18 @@ import model.MastermindModel;
  *         are: right color right place right color wrong place The colors to
  *         choose from are r, o, y, g, b, p.
  *
+ *         The game in progress is saved to SNAPSHOT_FILE as it is played, and
+ *         is picked up where it left off if the program is stopped mid-game.
+ *         The game is also held in a MastermindSessionRegistry, which saves
+ *         it to the file and lets it go once the player has left it alone
+ *         for the registry's idle timeout.
+ *
  */
 public class MastermindTextView {
 
+	public static final Path SNAPSHOT_FILE = Paths.get("mastermind-text.snapshots");
+	public static final long SNAPSHOT_FLUSH_MILLIS = 1000;
+
 	/**
 	 * The text view method of the Mastermind Game.
 	 */
@@ -28,41 +47,80 @@ public class MastermindTextView {
 
 		// Scanner that will read keyboard input for the whole game.
 		Scanner keyboard = new Scanner(System.in);
-		System.out.print("Would you like to play? ");
-		String response = keyboard.next();
-		while (response.equals("yes")) {
+		// Rates every guess, for the summary at the end of each game.
+		MastermindGuessAnalyzer analyzer = new MastermindGuessAnalyzer(MastermindCodeSpace.CLASSIC);
+		// Saves the game in progress, and brings back one that was cut short.
+		// Only one game is played at a time, so any other saved game is
+		// dropped rather than kept in the file forever.
+		MastermindSnapshotStore store = openStore();
+		MastermindSessionRegistry registry = new MastermindSessionRegistry(
+				MastermindSessionRegistry.DEFAULT_IDLE_TIMEOUT_MILLIS, MastermindSessionRegistry.DEFAULT_TICK_MILLIS,
+				store == null ? null : store::update);
+		registry.start();
+		MastermindSession resumed = null;
+		if (store != null) {
+			List<MastermindSession> recovered = store.recover(MastermindEventPublisher.getDefault());
+			for (MastermindSession session : recovered) {
+				if (resumed == null) {
+					resumed = session;
+				} else {
+					store.discard(session);
+				}
+			}
+		}
 
-			// Model and controller are constructed. Enter a string into the
-			// model construction argument to use a predefined rather than random
-			// color string as the correct answer.
-			MastermindModel model = new MastermindModel();
-			MastermindController controller = new MastermindController(model);
+		String response;
+		if (resumed != null) {
+			System.out.println("Picking up your unfinished game.");
+			response = "yes";
+		} else {
+			System.out.print("Would you like to play? ");
+			response = keyboard.next();
+		}
+		while (response.equals("yes")) {
 
-			int guessesUsed = 0;
-			boolean playerWon = false;
+			MastermindSession session;
+			analyzer.newGame();
+			if (resumed != null) {
+				// A game that was cut short is shown again from where it was.
+				session = resumed;
+				resumed = null;
+				List<String> guesses = session.getGuesses();
+				List<MastermindFeedback> feedback = session.getFeedback();
+				for (int i = 0; i < feedback.size(); i++) {
+					String guess = guesses.get(i);
+					MastermindFeedback result = feedback.get(i);
+					analyzer.rate(guess, result.getRightColorRightPlace(), result.getRightColorWrongPlace());
+					System.out.println("\nGuess number " + (i + 1) + ": " + guess);
+					System.out.println("Right color, right place: " + result.getRightColorRightPlace());
+					System.out.println("Right color, wrong place: " + result.getRightColorWrongPlace());
+				}
+			} else {
+				// Model and session are constructed. Enter a string into the
+				// model construction argument to use a predefined rather than
+				// random color string as the correct answer.
+				MastermindModel model = new MastermindModel();
+				session = new MastermindSession(model);
+				if (store != null) {
+					store.track(session);
+				}
+			}
+			registry.register(session);
 
 			// Guessing loop runs until user guesses 10 times or guesses correctly
-			while (guessesUsed < 10) {
+			while (!session.isOver()) {
 
-				System.out.print("\nEnter guess number " + (guessesUsed + 1) + ": ");
+				System.out.print("\nEnter guess number " + (session.getGuessesUsed() + 1) + ": ");
 				String guess = keyboard.next();
 
-				// If correct, exits loop.
+				// If wrong, prints information and loops back. If correct, the
+				// session is over and the loop exits.
 				try {
-					if (controller.isCorrect(guess)) {
-						playerWon = true;
-						break;
-					}
-
-					// If wrong, prints information and loops back.
-					else {
-
-						int numRightPlace = controller.getRightColorRightPlace(guess);
-						int numWrongPlace = controller.getRightColorWrongPlace(guess);
-						System.out.println("Right color, right place: " + numRightPlace);
-						System.out.println("Right color, wrong place: " + numWrongPlace);
-
-						guessesUsed++;
+					MastermindFeedback feedback = session.submitGuess(guess);
+					analyzer.rate(guess, feedback.getRightColorRightPlace(), feedback.getRightColorWrongPlace());
+					if (!session.isWon()) {
+						System.out.println("Right color, right place: " + feedback.getRightColorRightPlace());
+						System.out.println("Right color, wrong place: " + feedback.getRightColorWrongPlace());
 					}
 				} catch (MastermindIllegalLengthException e) {
 					// TODO Auto-generated catch block
@@ -80,11 +138,12 @@ public class MastermindTextView {
 
 			// Decides if player won and prints according message, then restarts program to
 			// ask if user would like to play again.
-			if (playerWon) {
+			if (session.isWon()) {
 				System.out.println("\n\nYou won! Great job!\n\n");
 			} else {
 				System.out.println("\n\nYou lost! You suck at this!\n\n");
 			}
+			System.out.println(analyzer.summarize().join() + "\n");
 
 			System.out.print("Would you like to play again? ");
 			response = keyboard.next();
@@ -94,7 +153,30 @@ public class MastermindTextView {
 		// User doesn't want to play:
 		System.out.println("Goodbye!");
 		keyboard.close();
+		registry.close();
+		if (store != null) {
+			try {
+				store.close();
+			} catch (IOException e) {
+				System.out.println("Could not save games: " + e.getMessage());
+			}
+		}
+
+	}
 
+	/**
+	 * Opens the store the game in progress is saved to.
+	 *
+	 * @return the store, or null if it cannot be opened, in which case games
+	 *         are played without being saved.
+	 */
+	private static MastermindSnapshotStore openStore() {
+		try {
+			return new MastermindSnapshotStore(SNAPSHOT_FILE, SNAPSHOT_FLUSH_MILLIS);
+		} catch (IOException e) {
+			System.out.println("Games will not be saved: " + e.getMessage());
+			return null;
+		}
 	}
 
 }
@@ -0,0 +1,342 @@
+package arena;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import controller.MastermindController;
+import controller.MastermindIllegalColorException;
+import controller.MastermindIllegalLengthException;
+import controller.MastermindSession;
+import model.MastermindModel;
+import solver.MastermindCodeSpace;
+import solver.MastermindStrategies;
+import solver.MastermindStrategy;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindArena.java
+ *
+ *         Purpose: Runs a tournament between strategies. Every bot plays the
+ *         same seeded list of secrets, scored by a MastermindController built
+ *         from MastermindModel(String), and gets the usual 10 guesses per
+ *         game. The games are split into chunks that run on a work-stealing
+ *         ForkJoinPool; each chunk keeps its own totals and adds them to the
+ *         bot's lock-free counters once at the end.
+ *
+ *         Each game is started with a seed derived from the tournament seed
+ *         and the game number, so bots that choose at random play the same
+ *         way whichever thread runs the game, and a run can be repeated.
+ *
+ *         The result is a leaderboard ordered by failure rate and then by the
+ *         mean number of guesses in the games that were solved.
+ *
+ */
+public class MastermindArena {
+
+	public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+	private final long seed;
+	private final long gamesPerBot;
+	private final int chunkSize;
+	private final ArrayList<Bot> bots = new ArrayList<Bot>();
+
+	/**
+	 * Constructor for MastermindArena.
+	 *
+	 * @param seed        the seed the list of secrets is generated from.
+	 * @param gamesPerBot the number of games every bot plays.
+	 * @param chunkSize   the number of games a single task plays before
+	 *                    reporting.
+	 * @throws IllegalArgumentException if chunkSize is less than 1.
+	 */
+	public MastermindArena(long seed, long gamesPerBot, int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1.");
+		}
+		this.seed = seed;
+		this.gamesPerBot = gamesPerBot;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Runs a tournament between all of the built-in strategies and prints the
+	 * leaderboard.
+	 *
+	 * @param gamesPerBot the number of games every bot plays.
+	 * @param seed        the seed the list of secrets is generated from.
+	 */
+	public static void runArena(long gamesPerBot, long seed) {
+		MastermindArena arena = new MastermindArena(seed, gamesPerBot, DEFAULT_CHUNK_SIZE);
+		for (String name : MastermindStrategies.getNames()) {
+			arena.addBot(name, MastermindStrategies.getFactory(name, MastermindCodeSpace.CLASSIC));
+		}
+		long start = System.nanoTime();
+		List<Standing> standings = arena.run();
+		System.out.print(formatLeaderboard(standings));
+		System.out.printf("%d games in %.1f s%n", gamesPerBot * standings.size(), (System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * Enters a bot into the tournament.
+	 *
+	 * @param name    the name shown on the leaderboard.
+	 * @param factory makes a new instance of the bot's strategy; instances
+	 *                are reused from chunk to chunk during a run, so at most
+	 *                one is made per worker thread.
+	 */
+	public void addBot(String name, Supplier<MastermindStrategy> factory) {
+		bots.add(new Bot(name, factory));
+	}
+
+	/**
+	 * Runs the tournament on the common ForkJoinPool.
+	 *
+	 * @return the leaderboard, best bot first.
+	 */
+	public List<Standing> run() {
+		return run(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Runs the tournament.
+	 *
+	 * @param pool the pool the games are played on.
+	 * @return the leaderboard, best bot first.
+	 */
+	public List<Standing> run(ForkJoinPool pool) {
+		ArrayList<ChunkTask> tasks = new ArrayList<ChunkTask>();
+		for (Bot bot : bots) {
+			tasks.add(new ChunkTask(bot, 0, gamesPerBot));
+		}
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+		for (Bot bot : bots) {
+			bot.idle.clear();
+		}
+
+		ArrayList<Standing> standings = new ArrayList<Standing>();
+		for (Bot bot : bots) {
+			standings.add(new Standing(bot));
+		}
+		standings.sort((a, b) -> {
+			int compare = Double.compare(a.getFailureRate(), b.getFailureRate());
+			return compare != 0 ? compare : Double.compare(a.getMeanGuesses(), b.getMeanGuesses());
+		});
+		return standings;
+	}
+
+	/**
+	 * Returns the secret for a game. The same seed and game number always give
+	 * the same secret, so every bot (and every run) sees the same games.
+	 *
+	 * @param seed the tournament seed.
+	 * @param game the game number.
+	 * @return the secret as a String of 4 colors.
+	 */
+	public static String secretFor(long seed, long game) {
+		long z = mix(seed, game);
+		return MastermindCodeSpace.CLASSIC.toString((int) Long.remainderUnsigned(z, MastermindCodeSpace.CLASSIC.size()));
+	}
+
+	/**
+	 * Returns the seed a bot is given for a game, for strategies that choose
+	 * at random. Like the secret it depends only on the tournament seed and
+	 * the game number.
+	 *
+	 * @param seed the tournament seed.
+	 * @param game the game number.
+	 * @return the seed for the bot's random choices.
+	 */
+	public static long strategySeedFor(long seed, long game) {
+		return mix(~seed, game);
+	}
+
+	/**
+	 * SplitMix64 finalizer over the seed and game number.
+	 */
+	private static long mix(long seed, long game) {
+		long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Formats a leaderboard as a table.
+	 *
+	 * @param standings the leaderboard returned by run().
+	 * @return the table as a String.
+	 */
+	public static String formatLeaderboard(List<Standing> standings) {
+		StringBuilder table = new StringBuilder();
+		table.append(String.format("%-4s %-20s %12s %8s %6s %9s%n", "rank", "bot", "games", "mean", "worst", "failures"));
+		int rank = 1;
+		for (Standing standing : standings) {
+			table.append(String.format("%-4d %-20s %12d %8.4f %6d %8.4f%%%n", rank++, standing.getName(),
+					standing.getGames(), standing.getMeanGuesses(), standing.getWorstCase(),
+					standing.getFailureRate() * 100));
+		}
+		return table.toString();
+	}
+
+	/**
+	 * A bot entered into the tournament and its running totals.
+	 */
+	private static class Bot {
+		private final String name;
+		private final Supplier<MastermindStrategy> factory;
+		private final ConcurrentLinkedQueue<MastermindStrategy> idle =
+				new ConcurrentLinkedQueue<MastermindStrategy>();
+		private final LongAdder games = new LongAdder();
+		private final LongAdder solved = new LongAdder();
+		private final LongAdder guessesInSolved = new LongAdder();
+		private final LongAccumulator worstCase = new LongAccumulator(Math::max, 0);
+
+		private Bot(String name, Supplier<MastermindStrategy> factory) {
+			this.name = name;
+			this.factory = factory;
+		}
+	}
+
+	/**
+	 * Plays games [from, to) for one bot, splitting itself until it is no
+	 * bigger than a chunk so idle workers have something to steal.
+	 */
+	private class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Bot bot;
+		private final long from;
+		private final long to;
+
+		private ChunkTask(Bot bot, long from, long to) {
+			this.bot = bot;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > chunkSize) {
+				long middle = (from + to) >>> 1;
+				invokeAll(new ChunkTask(bot, from, middle), new ChunkTask(bot, middle, to));
+				return;
+			}
+
+			// Borrow an instance for the chunk rather than keeping one per
+			// thread, so nothing stays attached to the pool's threads.
+			MastermindStrategy strategy = bot.idle.poll();
+			if (strategy == null) {
+				strategy = bot.factory.get();
+			}
+			long solved = 0;
+			long guessesInSolved = 0;
+			long worstCase = 0;
+			for (long game = from; game < to; game++) {
+				int guesses = play(strategy, secretFor(seed, game), strategySeedFor(seed, game));
+				if (guesses > 0) {
+					solved++;
+					guessesInSolved += guesses;
+					worstCase = Math.max(worstCase, guesses);
+				}
+			}
+			bot.idle.add(strategy);
+			bot.games.add(to - from);
+			bot.solved.add(solved);
+			bot.guessesInSolved.add(guessesInSolved);
+			bot.worstCase.accumulate(worstCase);
+		}
+
+		/**
+		 * Plays one game and returns the number of guesses it took, or 0 if
+		 * the bot ran out of guesses, made an illegal guess or gave up on
+		 * feedback it could not follow.
+		 */
+		private int play(MastermindStrategy strategy, String secret, long strategySeed) {
+			MastermindController controller = new MastermindController(new MastermindModel(secret));
+			strategy.newGame(strategySeed);
+			try {
+				for (int guesses = 1; guesses <= MastermindSession.MAX_GUESSES; guesses++) {
+					String guess = strategy.nextGuess();
+					int rightColorRightPlace = controller.getRightColorRightPlace(guess);
+					if (rightColorRightPlace == 4) {
+						return guesses;
+					}
+					strategy.feedback(guess, rightColorRightPlace, controller.getRightColorWrongPlace(guess));
+				}
+			} catch (MastermindIllegalLengthException | MastermindIllegalColorException | IllegalStateException e) {
+				return 0;
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * One row of the leaderboard.
+	 */
+	public static class Standing {
+		private final String name;
+		private final long games;
+		private final long solved;
+		private final long guessesInSolved;
+		private final long worstCase;
+
+		private Standing(Bot bot) {
+			this.name = bot.name;
+			this.games = bot.games.sum();
+			this.solved = bot.solved.sum();
+			this.guessesInSolved = bot.guessesInSolved.sum();
+			this.worstCase = bot.worstCase.get();
+		}
+
+		/**
+		 * @return the name of the bot.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the number of games played.
+		 */
+		public long getGames() {
+			return games;
+		}
+
+		/**
+		 * @return the mean number of guesses over the games that were solved.
+		 */
+		public double getMeanGuesses() {
+			return solved == 0 ? Double.NaN : (double) guessesInSolved / solved;
+		}
+
+		/**
+		 * @return the most guesses needed to solve a game.
+		 */
+		public long getWorstCase() {
+			return worstCase;
+		}
+
+		/**
+		 * @return the fraction of games that were not solved within 10 guesses.
+		 */
+		public double getFailureRate() {
+			return games == 0 ? 0 : (double) (games - solved) / games;
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package arena;
+
+import java.util.concurrent.CompletableFuture;
+
+import controller.MastermindFeedback;
+import controller.MastermindGuessScorer;
+import solver.MastermindBatchScorer;
+import solver.MastermindCodeSpace;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindBatchGuessScorer.java
+ *
+ *         Purpose: Lets sessions score their guesses through a
+ *         MastermindBatchScorer. Guesses and answers are packed for the
+ *         scorer and its packed feedback is turned back into a
+ *         MastermindFeedback.
+ *
+ */
+public class MastermindBatchGuessScorer implements MastermindGuessScorer {
+
+	private final MastermindBatchScorer scorer;
+
+	/**
+	 * Constructor for MastermindBatchGuessScorer.
+	 *
+	 * @param scorer the batch scorer; its board must be the one the sessions
+	 *               play on.
+	 */
+	public MastermindBatchGuessScorer(MastermindBatchScorer scorer) {
+		this.scorer = scorer;
+	}
+
+	@Override
+	public CompletableFuture<MastermindFeedback> score(String guess, String answer) {
+		MastermindCodeSpace space = scorer.getSpace();
+		return scorer.submit(space.fromString(guess), space.fromString(answer))
+				.thenApply(score -> new MastermindFeedback(space.getBlack(score), space.getWhite(score)));
+	}
+
+}
@@ -0,0 +1,663 @@
+package arena;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import controller.MastermindController;
+import controller.MastermindIllegalColorException;
+import controller.MastermindIllegalLengthException;
+import model.MastermindModel;
+import solver.MastermindBatchScorer;
+import solver.MastermindCodeSpace;
+import solver.MastermindFeedbackCache;
+import solver.MastermindScorer;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindEquivalenceHarness.java
+ *
+ *         Purpose: Checks that the fast scoring engines give exactly the
+ *         feedback the original string-based code gives. The reference is
+ *         MastermindController itself on the classic board, and a copy of
+ *         its algorithm generalized to any number of pegs and colors on the
+ *         others (see referenceScore()).
+ *
+ *         The work is a list of cases, each a guess and a block of secrets.
+ *         For each case every engine has to scoreAll() the block the same way
+ *         as the reference, and filter() the block by the first secret's
+ *         feedback down to the same secrets. Small boards are checked
+ *         exhaustively, every guess against every secret; large ones against
+ *         random cases drawn from a seed. The cases run on a ForkJoinPool and
+ *         the run stops at the first mismatch. Each chunk of cases borrows a
+ *         slot, a set of engines and a reference to check them against, from
+ *         a free list and hands it back when done, so nothing is left
+ *         attached to the pool's threads and the reference is not rebuilt
+ *         for every pair.
+ *
+ *         A mismatch is minimized before it is reported: secrets are dropped
+ *         from the case, pegs are moved to lower colors, and positions and
+ *         colors are removed from the board for as long as the engine still
+ *         disagrees with the reference.
+ *
+ */
+public class MastermindEquivalenceHarness {
+
+	public static final long EXHAUSTIVE_LIMIT = 1L << 24;
+	public static final int BLOCK_SIZE = 64;
+
+	private final LinkedHashMap<String, Function<MastermindCodeSpace, MastermindScorer>> engines =
+			new LinkedHashMap<String, Function<MastermindCodeSpace, MastermindScorer>>();
+	private final LongAdder pairsChecked = new LongAdder();
+
+	/**
+	 * Adds an engine to check.
+	 *
+	 * @param name    the name used in reports.
+	 * @param factory makes the engine for a board. It is called once per
+	 *                slot and board, at most one slot per chunk of cases
+	 *                running at once, and again while a mismatch is
+	 *                minimized. Engines that are AutoCloseable are closed
+	 *                when they are done with.
+	 */
+	public void addEngine(String name, Function<MastermindCodeSpace, MastermindScorer> factory) {
+		engines.put(name, factory);
+	}
+
+	/**
+	 * Adds the engines built into the solver package: the packed scoring of
+	 * MastermindCodeSpace, a MastermindFeedbackCache small enough to keep
+	 * evicting tiles, and a MastermindBatchScorer that scores each case's
+	 * secrets as one batch.
+	 */
+	public void addDefaultEngines() {
+		addEngine("packed", space -> space);
+		addEngine("cache", space -> new MastermindFeedbackCache(space, 16, 4 * 16 * 16));
+		addEngine("batch", space -> new MastermindBatchScorer(space, BLOCK_SIZE, 0));
+	}
+
+	/**
+	 * Checks every board with at most EXHAUSTIVE_LIMIT guess and secret
+	 * pairs exhaustively, and every other board against an equal share of the
+	 * random pairs, printing a line per board.
+	 *
+	 * @param randomPairs the number of random pairs to check in total.
+	 * @param seed        the seed the random pairs are drawn from.
+	 * @return true if no mismatch was found.
+	 */
+	public static boolean runEquivalence(long randomPairs, long seed) {
+		MastermindEquivalenceHarness harness = new MastermindEquivalenceHarness();
+		harness.addDefaultEngines();
+
+		ArrayList<MastermindCodeSpace> small = new ArrayList<MastermindCodeSpace>();
+		ArrayList<MastermindCodeSpace> large = new ArrayList<MastermindCodeSpace>();
+		for (int pegs = 1; pegs <= 8; pegs++) {
+			for (int colors = 1; colors <= MastermindCodeSpace.COLOR_CHARS.length(); colors++) {
+				MastermindCodeSpace space = new MastermindCodeSpace(pegs, colors);
+				((long) space.size() * space.size() <= EXHAUSTIVE_LIMIT ? small : large).add(space);
+			}
+		}
+
+		long start = System.nanoTime();
+		for (MastermindCodeSpace space : small) {
+			if (!report(space, "exhaustive", harness.checkExhaustive(space))) {
+				return false;
+			}
+		}
+		for (MastermindCodeSpace space : large) {
+			if (!report(space, "random", harness.checkRandom(space, randomPairs / large.size(), seed))) {
+				return false;
+			}
+		}
+		System.out.printf("%d pairs checked in %.1f s%n", harness.getPairsChecked(), (System.nanoTime() - start) / 1e9);
+		return true;
+	}
+
+	/**
+	 * Prints the result for one board and returns true if it passed.
+	 */
+	private static boolean report(MastermindCodeSpace space, String mode, Mismatch mismatch) {
+		System.out.println(space + " " + mode + ": " + (mismatch == null ? "ok" : mismatch));
+		return mismatch == null;
+	}
+
+	/**
+	 * Checks every guess against every secret.
+	 *
+	 * @param space the board.
+	 * @return the minimized first mismatch found, or null if there was none.
+	 */
+	public Mismatch checkExhaustive(MastermindCodeSpace space) {
+		long blocksPerGuess = (space.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		return check(space, space.size() * blocksPerGuess, (index, secrets) -> {
+			int guess = (int) (index / blocksPerGuess);
+			int first = (int) (index % blocksPerGuess) * BLOCK_SIZE;
+			int count = Math.min(BLOCK_SIZE, space.size() - first);
+			for (int i = 0; i < count; i++) {
+				secrets[i] = first + i;
+			}
+			return new Case(guess, Arrays.copyOf(secrets, count));
+		});
+	}
+
+	/**
+	 * Checks random guesses against random secrets.
+	 *
+	 * @param space the board.
+	 * @param pairs the number of pairs to check, rounded up to a whole block.
+	 * @param seed  the seed the pairs are drawn from; the same seed always
+	 *              gives the same pairs.
+	 * @return the minimized first mismatch found, or null if there was none.
+	 */
+	public Mismatch checkRandom(MastermindCodeSpace space, long pairs, long seed) {
+		return check(space, (pairs + BLOCK_SIZE - 1) / BLOCK_SIZE, (index, secrets) -> {
+			long draw = index * (BLOCK_SIZE + 1);
+			int guess = randomCode(space, seed, draw);
+			for (int i = 0; i < BLOCK_SIZE; i++) {
+				secrets[i] = randomCode(space, seed, draw + 1 + i);
+			}
+			return new Case(guess, secrets.clone());
+		});
+	}
+
+	/**
+	 * Returns the code drawn for a seed and draw number.
+	 */
+	private static int randomCode(MastermindCodeSpace space, long seed, long draw) {
+		// SplitMix64 finalizer
+		long z = seed + (draw + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (int) Long.remainderUnsigned(z, space.size());
+	}
+
+	/**
+	 * Runs the cases [0, count) on the common ForkJoinPool and minimizes the
+	 * first mismatch.
+	 */
+	private Mismatch check(MastermindCodeSpace space, long count, CaseSource source) {
+		ConcurrentLinkedQueue<Slot> idle = new ConcurrentLinkedQueue<Slot>();
+		AtomicReference<Mismatch> found = new AtomicReference<Mismatch>();
+		try {
+			ForkJoinPool.commonPool().invoke(new CheckTask(space, source, idle, found, 0, count));
+		} finally {
+			// Every chunk hands its slot back, even when it throws.
+			for (Slot slot : idle) {
+				for (MastermindScorer engine : slot.engines) {
+					close(engine);
+				}
+			}
+		}
+		Mismatch mismatch = found.get();
+		return mismatch == null ? null : minimize(mismatch);
+	}
+
+	/**
+	 * Closes an engine if it holds anything that needs closing.
+	 */
+	private static void close(MastermindScorer engine) {
+		if (engine instanceof AutoCloseable) {
+			try {
+				((AutoCloseable) engine).close();
+			} catch (Exception e) {
+				throw new IllegalStateException("Could not close an engine.", e);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of guess and secret pairs checked so far, counting
+	 *         each engine separately.
+	 */
+	public long getPairsChecked() {
+		return pairsChecked.sum();
+	}
+
+	/**
+	 * Returns the feedback the original code gives, packed as by
+	 * space.feedback(). On the classic board this is MastermindController
+	 * itself; on other boards it is the same algorithm on Strings.
+	 *
+	 * @param space  the board.
+	 * @param guess  the guess.
+	 * @param secret the secret.
+	 * @return the packed feedback.
+	 */
+	public static int referenceScore(MastermindCodeSpace space, int guess, int secret) {
+		return new Reference(space).score(guess, secret);
+	}
+
+	/**
+	 * Returns the reference feedback for every secret of a case, worked out
+	 * once and shared by every engine the case is checked against.
+	 */
+	private static int[] referenceScores(Reference reference, Case c) {
+		int[] expected = new int[c.secrets.length];
+		for (int i = 0; i < c.secrets.length; i++) {
+			expected[i] = reference.score(c.guess, c.secrets[i]);
+		}
+		return expected;
+	}
+
+	/**
+	 * Checks one case against one engine.
+	 *
+	 * @param expected the reference scores, from referenceScores().
+	 * @return a description of the first difference, or null if the engine
+	 *         agrees with the reference.
+	 */
+	private static String compare(MastermindCodeSpace space, MastermindScorer engine, Case c, int[] expected) {
+		int[] scores = new int[c.secrets.length];
+		engine.scoreAll(c.guess, c.secrets, c.secrets.length, scores);
+		for (int i = 0; i < c.secrets.length; i++) {
+			int actual = scores[i];
+			if (actual != expected[i]) {
+				return "score(" + space.toString(c.guess) + ", " + space.toString(c.secrets[i]) + ") gave "
+						+ describe(space, actual) + ", expected " + describe(space, expected[i]);
+			}
+		}
+
+		int feedback = expected[0];
+		int[] kept = new int[c.secrets.length];
+		int keptCount = 0;
+		for (int i = 0; i < c.secrets.length; i++) {
+			if (expected[i] == feedback) {
+				kept[keptCount++] = c.secrets[i];
+			}
+		}
+		int[] filtered = c.secrets.clone();
+		int filteredCount = engine.filter(c.guess, feedback, filtered, filtered.length);
+		if (!Arrays.equals(filtered, 0, filteredCount, kept, 0, keptCount)) {
+			return "filter(" + space.toString(c.guess) + ", " + describe(space, feedback) + ", "
+					+ codes(space, c.secrets, c.secrets.length) + ") gave " + codes(space, filtered, filteredCount)
+					+ ", expected " + codes(space, kept, keptCount);
+		}
+		return null;
+	}
+
+	private static String describe(MastermindCodeSpace space, int feedback) {
+		return space.getBlack(feedback) + "/" + space.getWhite(feedback);
+	}
+
+	private static String codes(MastermindCodeSpace space, int[] codes, int count) {
+		StringBuilder list = new StringBuilder("[");
+		for (int i = 0; i < count; i++) {
+			list.append(i == 0 ? "" : " ").append(space.toString(codes[i]));
+		}
+		return list.append(']').toString();
+	}
+
+	/**
+	 * Shrinks a mismatch as far as it will go while the engine still
+	 * disagrees with the reference.
+	 */
+	private Mismatch minimize(Mismatch mismatch) {
+		Mismatch smallest = mismatch;
+		boolean shrunk = true;
+		while (shrunk) {
+			shrunk = false;
+			for (Mismatch smaller : shrink(smallest)) {
+				Mismatch retried = retry(smaller);
+				if (retried != null) {
+					smallest = retried;
+					shrunk = true;
+					break;
+				}
+			}
+		}
+		return smallest;
+	}
+
+	/**
+	 * Checks a candidate for a smaller mismatch again, with a fresh engine.
+	 *
+	 * @return the mismatch with its new description, or null if the engine
+	 *         gets it right.
+	 */
+	private Mismatch retry(Mismatch candidate) {
+		MastermindScorer engine = engines.get(candidate.engine).apply(candidate.space);
+		String difference;
+		try {
+			difference = compare(candidate.space, engine, candidate.failingCase,
+					referenceScores(new Reference(candidate.space), candidate.failingCase));
+		} finally {
+			close(engine);
+		}
+		return difference == null ? null
+				: new Mismatch(candidate.engine, candidate.space, candidate.failingCase, difference);
+	}
+
+	/**
+	 * Lists the mismatches one step smaller than this one, smallest steps
+	 * last: dropping a secret, removing a position or an unused color from
+	 * the board, and moving a peg to a lower color.
+	 */
+	private static ArrayList<Mismatch> shrink(Mismatch mismatch) {
+		ArrayList<Mismatch> smaller = new ArrayList<Mismatch>();
+		MastermindCodeSpace space = mismatch.space;
+		Case c = mismatch.failingCase;
+
+		for (int i = 0; i < c.secrets.length && c.secrets.length > 1; i++) {
+			int[] secrets = new int[c.secrets.length - 1];
+			System.arraycopy(c.secrets, 0, secrets, 0, i);
+			System.arraycopy(c.secrets, i + 1, secrets, i, secrets.length - i);
+			smaller.add(new Mismatch(mismatch.engine, space, new Case(c.guess, secrets), null));
+		}
+
+		if (space.getPegs() > 1) {
+			MastermindCodeSpace fewerPegs = new MastermindCodeSpace(space.getPegs() - 1, space.getColors());
+			for (int position = 0; position < space.getPegs(); position++) {
+				int[] secrets = new int[c.secrets.length];
+				for (int i = 0; i < secrets.length; i++) {
+					secrets[i] = withoutPosition(space, fewerPegs, c.secrets[i], position);
+				}
+				smaller.add(new Mismatch(mismatch.engine, fewerPegs,
+						new Case(withoutPosition(space, fewerPegs, c.guess, position), secrets), null));
+			}
+		}
+
+		if (space.getColors() > 1) {
+			MastermindCodeSpace fewerColors = new MastermindCodeSpace(space.getPegs(), space.getColors() - 1);
+			for (int color = 0; color < space.getColors(); color++) {
+				if (!uses(space, c, color)) {
+					int[] secrets = new int[c.secrets.length];
+					for (int i = 0; i < secrets.length; i++) {
+						secrets[i] = withoutColor(space, fewerColors, c.secrets[i], color);
+					}
+					smaller.add(new Mismatch(mismatch.engine, fewerColors,
+							new Case(withoutColor(space, fewerColors, c.guess, color), secrets), null));
+				}
+			}
+		}
+
+		for (int code = -1; code < c.secrets.length; code++) {
+			int original = code < 0 ? c.guess : c.secrets[code];
+			for (int position = 0; position < space.getPegs(); position++) {
+				for (int color = 0; color < space.colorAt(original, position); color++) {
+					int lower = space.withColorAt(original, position, color);
+					Case simpler = code < 0 ? new Case(lower, c.secrets) : new Case(c.guess, c.secrets.clone());
+					if (code >= 0) {
+						simpler.secrets[code] = lower;
+					}
+					smaller.add(new Mismatch(mismatch.engine, space, simpler, null));
+				}
+			}
+		}
+		return smaller;
+	}
+
+	private static int withoutPosition(MastermindCodeSpace from, MastermindCodeSpace to, int code, int position) {
+		int result = 0;
+		for (int i = 0, j = 0; i < from.getPegs(); i++) {
+			if (i != position) {
+				result = to.withColorAt(result, j++, from.colorAt(code, i));
+			}
+		}
+		return result;
+	}
+
+	private static int withoutColor(MastermindCodeSpace from, MastermindCodeSpace to, int code, int color) {
+		int result = 0;
+		for (int i = 0; i < from.getPegs(); i++) {
+			int c = from.colorAt(code, i);
+			result = to.withColorAt(result, i, c > color ? c - 1 : c);
+		}
+		return result;
+	}
+
+	private static boolean uses(MastermindCodeSpace space, Case c, int color) {
+		for (int i = 0; i < space.getPegs(); i++) {
+			if (space.colorAt(c.guess, i) == color) {
+				return true;
+			}
+			for (int secret : c.secrets) {
+				if (space.colorAt(secret, i) == color) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Makes the case with the given index; secrets is scratch space of
+	 * BLOCK_SIZE codes that the source may fill and copy.
+	 */
+	private interface CaseSource {
+		Case get(long index, int[] secrets);
+	}
+
+	/**
+	 * The original scoring code for one board, kept so it can be reused. On
+	 * the classic board it holds a MastermindController per secret, made the
+	 * first time the secret comes up (the model cannot be changed, so a
+	 * controller only ever scores one secret); on other boards it keeps the
+	 * scratch buffers of the generalized algorithm. Only one thread may use
+	 * it at a time.
+	 */
+	private static class Reference {
+		private final MastermindCodeSpace space;
+		private final MastermindController[] controllers;
+		private final StringBuilder guessWrongPart = new StringBuilder();
+		private final StringBuilder answerWrongPart = new StringBuilder();
+
+		private Reference(MastermindCodeSpace space) {
+			this.space = space;
+			boolean classic = space.getPegs() == 4 && space.getColors() == 6;
+			this.controllers = classic ? new MastermindController[space.size()] : null;
+		}
+
+		private int score(int guess, int secret) {
+			String guessString = space.toString(guess);
+			if (controllers != null) {
+				MastermindController controller = controllers[secret];
+				if (controller == null) {
+					controller = new MastermindController(new MastermindModel(space.toString(secret)));
+					controllers[secret] = controller;
+				}
+				try {
+					return space.feedback(controller.getRightColorRightPlace(guessString),
+							controller.getRightColorWrongPlace(guessString));
+				} catch (MastermindIllegalLengthException | MastermindIllegalColorException e) {
+					throw new IllegalStateException("The controller rejected " + guessString + ".", e);
+				}
+			}
+
+			// As MastermindController.getRightColorRightPlace/WrongPlace
+			String secretString = space.toString(secret);
+			int rightColorRightPlace = 0;
+			guessWrongPart.setLength(0);
+			answerWrongPart.setLength(0);
+			for (int i = 0; i < guessString.length(); i++) {
+				if (guessString.charAt(i) == secretString.charAt(i)) {
+					rightColorRightPlace++;
+				} else {
+					guessWrongPart.append(guessString.charAt(i));
+					answerWrongPart.append(secretString.charAt(i));
+				}
+			}
+			int rightColorWrongPlace = 0;
+			for (int i = 0; i < guessWrongPart.length(); i++) {
+				for (int j = 0; j < answerWrongPart.length(); j++) {
+					if (guessWrongPart.charAt(i) == answerWrongPart.charAt(j)) {
+						rightColorWrongPlace++;
+						answerWrongPart.deleteCharAt(j);
+						break;
+					}
+				}
+			}
+			return space.feedback(rightColorRightPlace, rightColorWrongPlace);
+		}
+	}
+
+	/**
+	 * One of each engine and a reference for a board, borrowed by a chunk of
+	 * cases.
+	 */
+	private static class Slot {
+		private final ArrayList<MastermindScorer> engines = new ArrayList<MastermindScorer>();
+		private final Reference reference;
+
+		private Slot(MastermindCodeSpace space) {
+			this.reference = new Reference(space);
+		}
+	}
+
+	/**
+	 * A guess and the secrets it is scored against.
+	 */
+	private static class Case {
+		private final int guess;
+		private final int[] secrets;
+
+		private Case(int guess, int[] secrets) {
+			this.guess = guess;
+			this.secrets = secrets;
+		}
+	}
+
+	/**
+	 * A case on which an engine disagrees with the reference.
+	 */
+	public static class Mismatch {
+		private final String engine;
+		private final MastermindCodeSpace space;
+		private final Case failingCase;
+		private final String difference;
+
+		private Mismatch(String engine, MastermindCodeSpace space, Case failingCase, String difference) {
+			this.engine = engine;
+			this.space = space;
+			this.failingCase = failingCase;
+			this.difference = difference;
+		}
+
+		/**
+		 * @return the name of the engine.
+		 */
+		public String getEngine() {
+			return engine;
+		}
+
+		/**
+		 * @return the board the mismatch was found on, which may be smaller
+		 *         than the one checked.
+		 */
+		public MastermindCodeSpace getSpace() {
+			return space;
+		}
+
+		/**
+		 * @return the guess.
+		 */
+		public int getGuess() {
+			return failingCase.guess;
+		}
+
+		/**
+		 * @return the secrets the guess was scored against.
+		 */
+		public int[] getSecrets() {
+			return failingCase.secrets.clone();
+		}
+
+		@Override
+		public String toString() {
+			return engine + " on " + space + ": " + difference;
+		}
+	}
+
+	/**
+	 * Checks cases [from, to), splitting itself until it is no bigger than a
+	 * chunk so idle workers have something to steal.
+	 */
+	private class CheckTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final long CHUNK = 256;
+
+		private final MastermindCodeSpace space;
+		private final CaseSource source;
+		private final ConcurrentLinkedQueue<Slot> idle;
+		private final AtomicReference<Mismatch> found;
+		private final long from;
+		private final long to;
+
+		private CheckTask(MastermindCodeSpace space, CaseSource source, ConcurrentLinkedQueue<Slot> idle,
+				AtomicReference<Mismatch> found, long from, long to) {
+			this.space = space;
+			this.source = source;
+			this.idle = idle;
+			this.found = found;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (found.get() != null) {
+				return;
+			}
+			if (to - from > CHUNK) {
+				long middle = (from + to) >>> 1;
+				invokeAll(new CheckTask(space, source, idle, found, from, middle),
+						new CheckTask(space, source, idle, found, middle, to));
+				return;
+			}
+
+			Slot slot = borrow();
+			int[] scratch = new int[BLOCK_SIZE];
+			long pairs = 0;
+			try {
+				for (long index = from; index < to && found.get() == null; index++) {
+					Case c = source.get(index, scratch);
+					int[] expected = referenceScores(slot.reference, c);
+					int engine = 0;
+					for (Map.Entry<String, Function<MastermindCodeSpace, MastermindScorer>> entry : engines
+							.entrySet()) {
+						String difference = compare(space, slot.engines.get(engine++), c, expected);
+						if (difference != null) {
+							found.compareAndSet(null, new Mismatch(entry.getKey(), space, c, difference));
+							break;
+						}
+						pairs += c.secrets.length;
+					}
+				}
+			} finally {
+				idle.add(slot);
+			}
+			pairsChecked.add(pairs);
+		}
+
+		/**
+		 * Takes an idle slot, or makes a new one if every slot is in use.
+		 */
+		private Slot borrow() {
+			Slot slot = idle.poll();
+			if (slot == null) {
+				slot = new Slot(space);
+				try {
+					for (Function<MastermindCodeSpace, MastermindScorer> factory : engines.values()) {
+						slot.engines.add(factory.apply(space));
+					}
+				} catch (RuntimeException e) {
+					for (MastermindScorer engine : slot.engines) {
+						close(engine);
+					}
+					throw e;
+				}
+			}
+			return slot;
+		}
+	}
+
+}
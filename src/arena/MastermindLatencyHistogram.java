@@ -0,0 +1,136 @@
+package arena;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindLatencyHistogram.java
+ *
+ *         Purpose: A thread-safe log-linear histogram of latencies in
+ *         nanoseconds. Values below 64 get their own bucket; above that, every
+ *         power of two is split into 32 buckets, so any percentile is accurate
+ *         to about 3% while the whole histogram is a fixed 2048 counters.
+ *         recordCorrected() backfills the requests a fixed-rate caller could
+ *         not send during a stall, to correct for coordinated omission.
+ *
+ */
+public class MastermindLatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records one latency.
+	 *
+	 * @param nanos the latency in nanoseconds; negative values count as 0.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(value));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * Records one latency from a caller that sends a request every
+	 * expectedIntervalNanos, and backfills the requests it could not send
+	 * while waiting for this one. Each of those would have been sent one
+	 * interval later than the last and so waited one interval less, so the
+	 * values nanos - interval, nanos - 2 * interval, ... down to the last
+	 * positive one are recorded as well.
+	 *
+	 * @param nanos                 the latency in nanoseconds, measured from
+	 *                              when the request was meant to be sent.
+	 * @param expectedIntervalNanos the time between requests; 0 or less just
+	 *                              records nanos.
+	 */
+	public void recordCorrected(long nanos, long expectedIntervalNanos) {
+		record(nanos);
+		if (expectedIntervalNanos <= 0) {
+			return;
+		}
+		for (long missed = nanos - expectedIntervalNanos; missed > 0; missed -= expectedIntervalNanos) {
+			record(missed);
+		}
+	}
+
+	/**
+	 * Returns the bucket a value falls in.
+	 */
+	private static int bucketOf(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	/**
+	 * Returns the highest value that falls in a bucket.
+	 */
+	private static long highestValueIn(int bucket) {
+		if (bucket < 2 * SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long mantissa = bucket - shift * SUB_BUCKETS;
+		return ((mantissa + 1) << shift) - 1;
+	}
+
+	/**
+	 * @return the number of values recorded.
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the largest value recorded, exactly.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return the mean of the values recorded.
+	 */
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	/**
+	 * Returns the value at a percentile, e.g. 99.9.
+	 *
+	 * @param percentile the percentile, between 0 and 100.
+	 * @return a value that at least that percent of the recorded values are
+	 *         less than or equal to.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = count.sum();
+		if (total == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += counts.get(bucket);
+			if (seen >= target) {
+				return Math.min(highestValueIn(bucket), getMax());
+			}
+		}
+		return getMax();
+	}
+
+}
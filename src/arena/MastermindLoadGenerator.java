@@ -0,0 +1,370 @@
+package arena;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import controller.MastermindEventPublisher;
+import controller.MastermindFeedback;
+import controller.MastermindGuessScorer;
+import controller.MastermindIllegalColorException;
+import controller.MastermindIllegalLengthException;
+import controller.MastermindSession;
+import controller.MastermindSessionRegistry;
+import model.MastermindModel;
+import solver.MastermindBatchScorer;
+import solver.MastermindCodeSpace;
+import solver.MastermindStrategies;
+import solver.MastermindStrategy;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindLoadGenerator.java
+ *
+ *         Purpose: Drives the game engine in-process with many simulated
+ *         players to see how it holds up under load. Each player plays games
+ *         back to back through a real MastermindSession (and so through the
+ *         MastermindController scoring path), choosing guesses with a
+ *         strategy and waiting the think time between guesses.
+ *
+ *         Latency is corrected for coordinated omission: every guess has an
+ *         intended start time on the player's fixed schedule, and latency is
+ *         measured from that time rather than from when the guess actually
+ *         started. If the engine stalls, the guesses the player should have
+ *         sent during the stall are backfilled into the histogram with the
+ *         waits they would have seen, and the player picks up its schedule at
+ *         the next slot. The uncorrected service time is recorded too, for
+ *         comparison.
+ *
+ *         Only the engine is timed. The bot works out its next guess after
+ *         the clock has stopped on the last one and before the next one's
+ *         intended start; a bot slower than the think time delays its own
+ *         schedule without that being charged as latency.
+ *
+ *         Guesses can also be scored through a MastermindBatchScorer, to
+ *         see what batching does to throughput and latency; the report then
+ *         includes the batch sizes achieved.
+ *
+ *         Every game is held in a MastermindSessionRegistry while it is
+ *         played, as a server would hold it, so the cost of keeping its
+ *         timeout up to date is part of what is measured. A game abandoned
+ *         after an error is left for the registry to evict once it has gone
+ *         idle for ten think times (at least a second).
+ *
+ *         The report is written as JSON so runs can be compared by scripts.
+ *
+ */
+public class MastermindLoadGenerator {
+
+	private final int players;
+	private final long durationNanos;
+	private final long thinkTimeNanos;
+	private final String strategyName;
+	private final Supplier<MastermindStrategy> strategyFactory;
+	private final int threads;
+	private final MastermindEventPublisher publisher;
+	private final MastermindBatchScorer batchScorer;
+	private final MastermindGuessScorer guessScorer;
+	private final MastermindSessionRegistry registry;
+
+	private final MastermindLatencyHistogram latency = new MastermindLatencyHistogram();
+	private final MastermindLatencyHistogram serviceTime = new MastermindLatencyHistogram();
+	private final AtomicLongArray guessesPerSecond;
+	private final LongAdder games = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private long elapsedNanos;
+
+	/**
+	 * Constructor for MastermindLoadGenerator.
+	 *
+	 * @param players         the number of simulated players.
+	 * @param durationSeconds how long to run for.
+	 * @param thinkTimeMillis how long each player waits between guesses; 0
+	 *                        means guess again as soon as the last one is
+	 *                        scored.
+	 * @param strategyName    the strategy players use, one of
+	 *                        MastermindStrategies.getNames().
+	 * @param threads         the number of threads driving the players.
+	 * @param publisher       where the sessions publish events, or null.
+	 */
+	public MastermindLoadGenerator(int players, int durationSeconds, long thinkTimeMillis, String strategyName,
+			int threads, MastermindEventPublisher publisher) {
+		this(players, durationSeconds, thinkTimeMillis, strategyName, threads, publisher, null);
+	}
+
+	/**
+	 * Constructor for MastermindLoadGenerator that scores guesses through a
+	 * MastermindBatchScorer.
+	 *
+	 * @param players         the number of simulated players.
+	 * @param durationSeconds how long to run for.
+	 * @param thinkTimeMillis how long each player waits between guesses.
+	 * @param strategyName    the strategy players use.
+	 * @param threads         the number of threads driving the players.
+	 * @param publisher       where the sessions publish events, or null.
+	 * @param batchScorer     scores the guesses, or null to score each one on
+	 *                        the player's thread.
+	 */
+	public MastermindLoadGenerator(int players, int durationSeconds, long thinkTimeMillis, String strategyName,
+			int threads, MastermindEventPublisher publisher, MastermindBatchScorer batchScorer) {
+		this.players = players;
+		this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+		this.thinkTimeNanos = TimeUnit.MILLISECONDS.toNanos(thinkTimeMillis);
+		this.strategyName = strategyName;
+		this.strategyFactory = MastermindStrategies.getFactory(strategyName, MastermindCodeSpace.CLASSIC);
+		this.threads = threads;
+		this.publisher = publisher;
+		this.batchScorer = batchScorer;
+		this.guessScorer = batchScorer == null ? null : new MastermindBatchGuessScorer(batchScorer);
+		this.guessesPerSecond = new AtomicLongArray(durationSeconds + 1);
+		long idleTimeoutMillis = Math.max(MastermindSessionRegistry.DEFAULT_TICK_MILLIS, 10 * thinkTimeMillis);
+		this.registry = new MastermindSessionRegistry(idleTimeoutMillis, Math.max(1, idleTimeoutMillis / 10), null);
+	}
+
+	/**
+	 * Runs the load generator from the command line and writes the report.
+	 *
+	 * @param players         the number of simulated players.
+	 * @param durationSeconds how long to run for.
+	 * @param thinkTimeMillis how long each player waits between guesses.
+	 * @param strategyName    the strategy players use.
+	 * @param report          the file the JSON report is written to.
+	 * @param batchSize       the most guesses scored in one batch, or 0 to
+	 *                        score each guess on its own.
+	 * @param batchDelayNanos the longest a batch waits to fill up.
+	 * @throws IOException          if the report cannot be written.
+	 * @throws InterruptedException if interrupted while running.
+	 */
+	public static void runLoad(int players, int durationSeconds, long thinkTimeMillis, String strategyName,
+			Path report, int batchSize, long batchDelayNanos) throws IOException, InterruptedException {
+		MastermindBatchScorer batchScorer = batchSize > 0
+				? new MastermindBatchScorer(MastermindCodeSpace.CLASSIC, batchSize, batchDelayNanos)
+				: null;
+		MastermindLoadGenerator generator = new MastermindLoadGenerator(players, durationSeconds, thinkTimeMillis,
+				strategyName, Runtime.getRuntime().availableProcessors(), MastermindEventPublisher.getDefault(),
+				batchScorer);
+		generator.run();
+		if (batchScorer != null) {
+			batchScorer.close();
+		}
+		String json = generator.toJson();
+		Files.writeString(report, json);
+		System.out.print(json);
+	}
+
+	/**
+	 * Runs the players for the configured duration and waits for them to
+	 * finish.
+	 *
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public void run() throws InterruptedException {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads);
+		registry.start();
+		CountDownLatch finished = new CountDownLatch(players);
+		// Players work out their first guesses before the clock starts.
+		Player[] all = new Player[players];
+		for (int i = 0; i < players; i++) {
+			all[i] = new Player(executor, finished);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < players; i++) {
+			// Spread the first guesses over one think time so players do not
+			// all guess at once.
+			long offset = thinkTimeNanos * i / players;
+			all[i].start = start;
+			all[i].intendedStart = start + offset;
+			executor.schedule(all[i], offset, TimeUnit.NANOSECONDS);
+		}
+		finished.await();
+		elapsedNanos = System.nanoTime() - start;
+		executor.shutdown();
+		registry.close();
+	}
+
+	/**
+	 * One simulated player. Each run() makes a single guess and schedules the
+	 * next one, so a player never runs on two threads at once.
+	 */
+	private class Player implements Runnable {
+		private final ScheduledThreadPoolExecutor executor;
+		private final CountDownLatch finished;
+		private final MastermindStrategy strategy = strategyFactory.get();
+		private MastermindSession session;
+		private String guess;
+		private long start;
+		private long intendedStart;
+
+		private Player(ScheduledThreadPoolExecutor executor, CountDownLatch finished) {
+			this.executor = executor;
+			this.finished = finished;
+			prepareGuess();
+		}
+
+		/**
+		 * Works out the next guess, starting a new game first if needed. This
+		 * is the player's thinking and is never timed.
+		 */
+		private void prepareGuess() {
+			if (session == null || session.isOver()) {
+				session = new MastermindSession(new MastermindModel(), publisher);
+				registry.register(session);
+				strategy.newGame();
+			}
+			guess = strategy.nextGuess();
+		}
+
+		@Override
+		public void run() {
+			String submitted = guess;
+			long actualStart = System.nanoTime();
+			if (guessScorer != null) {
+				try {
+					// The session records the guess back on the player's
+					// threads, and the clock stops as soon as it has.
+					session.submitGuess(submitted, guessScorer, executor).whenComplete(
+							(feedback, failure) -> scored(submitted, feedback, actualStart, System.nanoTime()));
+				} catch (RuntimeException | MastermindIllegalLengthException | MastermindIllegalColorException e) {
+					scored(submitted, null, actualStart, System.nanoTime());
+				}
+				return;
+			}
+			MastermindFeedback feedback = null;
+			try {
+				feedback = session.submitGuess(submitted);
+			} catch (RuntimeException | MastermindIllegalLengthException | MastermindIllegalColorException e) {
+				// Counted as an error below
+			}
+			scored(submitted, feedback, actualStart, System.nanoTime());
+		}
+
+		/**
+		 * Records a guess that was scored at end, or failed to be if feedback
+		 * is null, then prepares and schedules the next one.
+		 */
+		private void scored(String submitted, MastermindFeedback feedback, long actualStart, long end) {
+			latency.recordCorrected(end - intendedStart, thinkTimeNanos);
+			serviceTime.record(end - actualStart);
+			int second = (int) ((end - start) / TimeUnit.SECONDS.toNanos(1));
+			if (second < guessesPerSecond.length()) {
+				guessesPerSecond.incrementAndGet(second);
+			}
+
+			if (feedback == null) {
+				errors.increment();
+				session = null;
+			} else if (session.isOver()) {
+				games.increment();
+			} else {
+				strategy.feedback(submitted, feedback.getRightColorRightPlace(), feedback.getRightColorWrongPlace());
+			}
+			if (end - start >= durationNanos) {
+				finished.countDown();
+				return;
+			}
+			prepareGuess();
+
+			// The slots missed while waiting were backfilled above, so carry
+			// on from the first one after the guess was scored.
+			intendedStart += thinkTimeNanos;
+			if (thinkTimeNanos > 0 && intendedStart < end) {
+				intendedStart += (end - intendedStart + thinkTimeNanos - 1) / thinkTimeNanos * thinkTimeNanos;
+			}
+			intendedStart = Math.max(intendedStart, System.nanoTime());
+			executor.schedule(this, intendedStart - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * @return the coordinated-omission-corrected latency of every guess,
+	 *         including the ones backfilled for stalls.
+	 */
+	public MastermindLatencyHistogram getLatency() {
+		return latency;
+	}
+
+	/**
+	 * @return the time each guess actually took once it started, one value
+	 *         per guess sent.
+	 */
+	public MastermindLatencyHistogram getServiceTime() {
+		return serviceTime;
+	}
+
+	/**
+	 * @return the number of games finished.
+	 */
+	public long getGames() {
+		return games.sum();
+	}
+
+	/**
+	 * @return the number of guesses that threw instead of being scored.
+	 */
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	/**
+	 * @return the registry holding the games being played.
+	 */
+	public MastermindSessionRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Returns the report of the last run as JSON. Latencies are in
+	 * microseconds.
+	 *
+	 * @return the report.
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{\n");
+		json.append("  \"players\": ").append(players).append(",\n");
+		json.append("  \"threads\": ").append(threads).append(",\n");
+		json.append("  \"durationSeconds\": ").append(TimeUnit.NANOSECONDS.toSeconds(durationNanos)).append(",\n");
+		json.append("  \"thinkTimeMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(thinkTimeNanos)).append(",\n");
+		json.append("  \"strategy\": \"").append(strategyName).append("\",\n");
+		json.append("  \"guesses\": ").append(serviceTime.getCount()).append(",\n");
+		json.append("  \"games\": ").append(getGames()).append(",\n");
+		json.append("  \"errors\": ").append(getErrors()).append(",\n");
+		json.append("  \"openSessions\": ").append(registry.size()).append(",\n");
+		json.append("  \"expiredSessions\": ").append(registry.getExpiredCount()).append(",\n");
+		json.append(String.format(Locale.ROOT, "  \"guessesPerSecond\": %.1f,%n",
+				serviceTime.getCount() / Math.max(1e-9, elapsedNanos / 1e9)));
+		json.append("  \"latencyMicros\": ").append(histogramJson(latency)).append(",\n");
+		json.append("  \"serviceTimeMicros\": ").append(histogramJson(serviceTime)).append(",\n");
+		if (batchScorer != null) {
+			json.append(String.format(Locale.ROOT, "  \"batch\": {\"maxSize\": %d, \"maxDelayMicros\": %.3f, "
+					+ "\"batches\": %d, \"meanSize\": %.2f, \"meanWaitMicros\": %.3f},%n",
+					batchScorer.getMaxBatchSize(), batchScorer.getMaxDelayNanos() / 1e3, batchScorer.getBatchCount(),
+					batchScorer.getMeanBatchSize(), batchScorer.getMeanWaitNanos() / 1e3));
+		}
+		json.append("  \"throughputBySecond\": [");
+		for (int i = 0; i < guessesPerSecond.length(); i++) {
+			json.append(i == 0 ? "" : ", ").append(guessesPerSecond.get(i));
+		}
+		json.append("]\n}\n");
+		return json.toString();
+	}
+
+	/**
+	 * Formats the summary of a histogram as a JSON object.
+	 */
+	private static String histogramJson(MastermindLatencyHistogram histogram) {
+		return String.format(Locale.ROOT, "{\"mean\": %.3f, \"p50\": %.3f, \"p99\": %.3f, \"p99.9\": %.3f, \"max\": %.3f}",
+				histogram.getMean() / 1e3, histogram.getValueAtPercentile(50) / 1e3,
+				histogram.getValueAtPercentile(99) / 1e3, histogram.getValueAtPercentile(99.9) / 1e3,
+				histogram.getMax() / 1e3);
+	}
+
+}
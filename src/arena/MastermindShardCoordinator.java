@@ -0,0 +1,342 @@
+package arena;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import solver.MastermindCodeSpace;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindShardCoordinator.java
+ *
+ *         Purpose: Evaluates a strategy against every secret of a board using
+ *         several worker JVMs on the same machine, for sweeps that outgrow the
+ *         heap or cores of one JVM. The secrets are split into shards that are
+ *         handed out from a queue, one at a time, to MastermindShardWorker
+ *         processes over their standard input and output.
+ *
+ *         Workers stream partial histograms back while a shard runs; they are
+ *         kept per shard and only merged into the result once the shard is
+ *         done. If a worker dies, or has not finished a shard by its deadline
+ *         and is killed for hanging, its shard's partial results are thrown
+ *         away, a new worker is started, and the shard goes back on the queue
+ *         to be retried (up to maxAttempts times in total).
+ *
+ */
+public class MastermindShardCoordinator {
+
+	public static final long DEFAULT_SHARD_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	private final String strategyName;
+	private final MastermindCodeSpace space;
+	private final int shardSize;
+	private final int workers;
+	private final int maxGuesses;
+	private final int maxAttempts;
+	private final long shardTimeoutMillis;
+	private final List<String> jvmOptions;
+
+	private final LinkedBlockingQueue<Shard> queue = new LinkedBlockingQueue<Shard>();
+	private final AtomicInteger remaining = new AtomicInteger();
+	private final AtomicInteger retries = new AtomicInteger();
+	private long[] histogram;
+	private volatile IOException failure;
+
+	/**
+	 * Constructor for MastermindShardCoordinator that gives each shard
+	 * DEFAULT_SHARD_TIMEOUT_MILLIS to finish.
+	 *
+	 * @param strategyName the strategy to evaluate, one of
+	 *                     MastermindStrategies.getNames().
+	 * @param space        the board geometry.
+	 * @param shardSize    the number of secrets per shard.
+	 * @param workers      the number of worker JVMs.
+	 * @param maxGuesses   the guesses allowed per game.
+	 * @param maxAttempts  how many times a shard may be tried before giving
+	 *                     up.
+	 * @param jvmOptions   extra options for the worker JVMs, e.g. "-Xmx4g".
+	 */
+	public MastermindShardCoordinator(String strategyName, MastermindCodeSpace space, int shardSize, int workers,
+			int maxGuesses, int maxAttempts, List<String> jvmOptions) {
+		this(strategyName, space, shardSize, workers, maxGuesses, maxAttempts, DEFAULT_SHARD_TIMEOUT_MILLIS,
+				jvmOptions);
+	}
+
+	/**
+	 * Constructor for MastermindShardCoordinator.
+	 *
+	 * @param strategyName       the strategy to evaluate, one of
+	 *                           MastermindStrategies.getNames().
+	 * @param space              the board geometry.
+	 * @param shardSize          the number of secrets per shard.
+	 * @param workers            the number of worker JVMs.
+	 * @param maxGuesses         the guesses allowed per game.
+	 * @param maxAttempts        how many times a shard may be tried before
+	 *                           giving up.
+	 * @param shardTimeoutMillis how long a worker has to finish a shard before
+	 *                           it is killed and the shard handed out again.
+	 * @param jvmOptions         extra options for the worker JVMs, e.g.
+	 *                           "-Xmx4g".
+	 */
+	public MastermindShardCoordinator(String strategyName, MastermindCodeSpace space, int shardSize, int workers,
+			int maxGuesses, int maxAttempts, long shardTimeoutMillis, List<String> jvmOptions) {
+		if (shardTimeoutMillis <= 0) {
+			throw new IllegalArgumentException("Shard timeout must be positive.");
+		}
+		this.strategyName = strategyName;
+		this.space = space;
+		this.shardSize = shardSize;
+		this.workers = workers;
+		this.maxGuesses = maxGuesses;
+		this.maxAttempts = maxAttempts;
+		this.shardTimeoutMillis = shardTimeoutMillis;
+		this.jvmOptions = jvmOptions;
+	}
+
+	/**
+	 * Runs a sharded evaluation from the command line and prints the
+	 * histogram.
+	 *
+	 * @param strategyName the strategy to evaluate.
+	 * @param pegs         the number of pegs.
+	 * @param colors       the number of colors.
+	 * @param workers      the number of worker JVMs.
+	 * @throws IOException          if a shard could not be evaluated.
+	 * @throws InterruptedException if interrupted while waiting for workers.
+	 */
+	public static void runShards(String strategyName, int pegs, int colors, int workers)
+			throws IOException, InterruptedException {
+		MastermindCodeSpace space = new MastermindCodeSpace(pegs, colors);
+		MastermindShardCoordinator coordinator = new MastermindShardCoordinator(strategyName, space,
+				Math.max(1, space.size() / (workers * 16)), workers, 20, 3, new ArrayList<String>());
+		long start = System.nanoTime();
+		long[] histogram = coordinator.run();
+		long games = 0;
+		long guesses = 0;
+		for (int i = 1; i < histogram.length; i++) {
+			if (histogram[i] > 0) {
+				System.out.println(i + " guesses: " + histogram[i]);
+			}
+			games += histogram[i];
+			guesses += i * histogram[i];
+		}
+		System.out.println("unsolved: " + histogram[0]);
+		System.out.printf("mean %.4f over %d games, %d retries, %.1f s%n", (double) guesses / Math.max(1, games),
+				games + histogram[0], coordinator.getRetries(), (System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * Evaluates the strategy against every secret.
+	 *
+	 * @return counts indexed by guesses used, with index 0 for unsolved games.
+	 * @throws IOException          if a shard failed maxAttempts times.
+	 * @throws InterruptedException if interrupted while waiting for workers.
+	 */
+	public long[] run() throws IOException, InterruptedException {
+		histogram = new long[maxGuesses + 1];
+		int id = 0;
+		for (int first = 0; first < space.size(); first += shardSize) {
+			queue.add(new Shard(id++, first, Math.min(space.size(), first + shardSize)));
+		}
+		remaining.set(id);
+
+		ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1);
+		watchdog.setRemoveOnCancelPolicy(true);
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < workers; i++) {
+			Thread thread = new Thread(() -> driveWorker(watchdog), "mastermind-shard-driver-" + i);
+			thread.start();
+			threads.add(thread);
+		}
+		try {
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} finally {
+			watchdog.shutdownNow();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return histogram;
+	}
+
+	/**
+	 * Body of the thread that owns one worker process: hands it shards until
+	 * there are none left, replacing it whenever it dies. The watchdog kills
+	 * a worker that misses a shard's deadline, which ends the wait for its
+	 * answer the same way a crash does.
+	 */
+	private void driveWorker(ScheduledThreadPoolExecutor watchdog) {
+		Worker worker = null;
+		try {
+			while (remaining.get() > 0 && failure == null) {
+				Shard shard = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (shard == null) {
+					continue;
+				}
+				try {
+					if (worker == null) {
+						worker = new Worker();
+					}
+					Worker running = worker;
+					ScheduledFuture<?> deadline = watchdog.schedule(running::kill, shardTimeoutMillis,
+							TimeUnit.MILLISECONDS);
+					long[] counts;
+					try {
+						counts = running.evaluate(shard);
+					} catch (IOException e) {
+						deadline.cancel(false);
+						throw deadline.isCancelled() ? e
+								: new IOException("Shard " + shard.id + " missed its deadline.", e);
+					}
+					if (!deadline.cancel(false)) {
+						// Killed just as it finished: keep the counts, not the worker.
+						worker.kill();
+						worker = null;
+					}
+					synchronized (this) {
+						for (int i = 0; i < counts.length; i++) {
+							histogram[i] += counts[i];
+						}
+					}
+					remaining.decrementAndGet();
+				} catch (IOException e) {
+					if (worker != null) {
+						worker.kill();
+						worker = null;
+					}
+					if (++shard.attempts >= maxAttempts) {
+						failure = new IOException("Shard " + shard.id + " failed " + shard.attempts + " times.", e);
+					} else {
+						retries.incrementAndGet();
+						queue.add(shard);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (worker != null) {
+				worker.stop();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of times a shard was retried after its worker died
+	 *         or missed the deadline.
+	 */
+	public int getRetries() {
+		return retries.get();
+	}
+
+	/**
+	 * A range of secrets and how many times it has been tried.
+	 */
+	private static class Shard {
+		private final int id;
+		private final int first;
+		private final int last;
+		private int attempts;
+
+		private Shard(int id, int first, int last) {
+			this.id = id;
+			this.first = first;
+			this.last = last;
+		}
+	}
+
+	/**
+	 * A worker JVM and the pipes to it.
+	 */
+	private class Worker {
+		private final Process process;
+		private final DataOutputStream out;
+		private final DataInputStream in;
+
+		/**
+		 * Starts a worker JVM with the same Java and class path as this one.
+		 */
+		private Worker() throws IOException {
+			ArrayList<String> command = new ArrayList<String>();
+			command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+			command.addAll(jvmOptions);
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(MastermindShardWorker.class.getName());
+			process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+			out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+			in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+		}
+
+		/**
+		 * Sends a shard and collects its partial histograms until it is done.
+		 * Throws if the worker dies or says something unexpected.
+		 */
+		private long[] evaluate(Shard shard) throws IOException {
+			out.writeInt(shard.id);
+			out.writeUTF(strategyName);
+			out.writeInt(space.getPegs());
+			out.writeInt(space.getColors());
+			out.writeInt(shard.first);
+			out.writeInt(shard.last);
+			out.writeInt(maxGuesses);
+			out.flush();
+
+			long[] counts = new long[maxGuesses + 1];
+			while (true) {
+				byte type = in.readByte();
+				if (in.readInt() != shard.id) {
+					throw new IOException("Worker answered for the wrong shard.");
+				}
+				if (type == MastermindShardWorker.DONE) {
+					return counts;
+				}
+				if (type != MastermindShardWorker.PARTIAL || in.readInt() != counts.length) {
+					throw new IOException("Worker sent a malformed message.");
+				}
+				for (int i = 0; i < counts.length; i++) {
+					counts[i] += in.readLong();
+				}
+			}
+		}
+
+		/**
+		 * Asks the worker to exit.
+		 */
+		private void stop() {
+			try {
+				out.writeInt(-1);
+				out.flush();
+				process.waitFor(5, TimeUnit.SECONDS);
+			} catch (IOException e) {
+				// Already gone
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			process.destroy();
+		}
+
+		/**
+		 * Kills the worker without asking.
+		 */
+		private void kill() {
+			process.destroyForcibly();
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+package arena;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import solver.MastermindCodeSpace;
+import solver.MastermindScorer;
+import solver.MastermindStrategies;
+import solver.MastermindStrategy;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindShardWorker.java
+ *
+ *         Purpose: The worker side of sharded strategy evaluation. It runs in
+ *         its own JVM, started by MastermindShardCoordinator, and talks to it
+ *         over its standard input and output:
+ *
+ *         	request:	int shard, UTF strategy, int pegs, int colors,
+ *         			int first secret, int last secret (exclusive),
+ *         			int max guesses
+ *         	partial:	byte PARTIAL, int shard, int length, long[length] counts
+ *         	done:	byte DONE, int shard
+ *
+ *         A request with a negative shard tells the worker to exit. While a
+ *         shard is running, the counts played since the last partial are sent
+ *         PARTIALS_PER_SHARD times, evenly spread over its secrets; index 0
+ *         counts games that were not solved within max guesses, index n games
+ *         solved in n guesses. Anything not part of the protocol goes to
+ *         standard error.
+ *
+ *         The strategy, and for boards too big to score from scratch the
+ *         MastermindFeedbackCache it scores through, are kept from one shard
+ *         to the next for as long as the board and strategy stay the same, so
+ *         whatever the strategy has learned carries over. Every game is
+ *         seeded from the shard and the secret, so a shard that is retried,
+ *         on this worker or another, plays exactly the same games.
+ *
+ */
+public class MastermindShardWorker {
+
+	public static final byte PARTIAL = 1;
+	public static final byte DONE = 2;
+	public static final int PARTIALS_PER_SHARD = 8;
+
+	/**
+	 * Serves shard requests until told to exit or the coordinator goes away.
+	 *
+	 * @param args none
+	 * @throws IOException if the pipe to the coordinator fails.
+	 */
+	public static void main(String[] args) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+		MastermindCodeSpace lastSpace = null;
+		String lastStrategyName = null;
+		MastermindStrategy strategy = null;
+		try {
+			while (true) {
+				int shard = in.readInt();
+				if (shard < 0) {
+					return;
+				}
+				String strategyName = in.readUTF();
+				MastermindCodeSpace space = new MastermindCodeSpace(in.readInt(), in.readInt());
+				int first = in.readInt();
+				int last = in.readInt();
+				int maxGuesses = in.readInt();
+
+				if (lastSpace == null || lastSpace.getPegs() != space.getPegs()
+						|| lastSpace.getColors() != space.getColors()) {
+					lastSpace = space;
+					lastStrategyName = null;
+				}
+				if (!strategyName.equals(lastStrategyName)) {
+					lastStrategyName = strategyName;
+					MastermindScorer scorer = MastermindStrategies.getScorer(lastSpace);
+					strategy = MastermindStrategies.getFactory(strategyName, lastSpace, scorer).get();
+				}
+				int partialEvery = Math.max(1, (last - first + PARTIALS_PER_SHARD - 1) / PARTIALS_PER_SHARD);
+				for (int from = first; from < last; from += partialEvery) {
+					long[] counts = evaluate(strategy, lastSpace, from, Math.min(last, from + partialEvery),
+							maxGuesses, shard);
+					out.writeByte(PARTIAL);
+					out.writeInt(shard);
+					out.writeInt(counts.length);
+					for (long count : counts) {
+						out.writeLong(count);
+					}
+					out.flush();
+				}
+				out.writeByte(DONE);
+				out.writeInt(shard);
+				out.flush();
+			}
+		} catch (EOFException e) {
+			// The coordinator closed the pipe; nothing left to do.
+		}
+	}
+
+	/**
+	 * Plays the strategy against every secret in [first, last) and counts how
+	 * many guesses each game took. Games are seeded from the secret alone.
+	 *
+	 * @param strategy   the strategy to evaluate.
+	 * @param space      the board geometry.
+	 * @param first      the first secret.
+	 * @param last       one past the last secret.
+	 * @param maxGuesses the guesses allowed per game.
+	 * @return counts indexed by guesses used, with index 0 for unsolved games,
+	 *         including those the strategy gave up on.
+	 */
+	public static long[] evaluate(MastermindStrategy strategy, MastermindCodeSpace space, int first, int last,
+			int maxGuesses) {
+		return evaluate(strategy, space, first, last, maxGuesses, 0);
+	}
+
+	/**
+	 * Plays the strategy against every secret in [first, last) and counts how
+	 * many guesses each game took. Each game is started with a seed made from
+	 * the given seed and the secret, so the same range always plays the same
+	 * games.
+	 *
+	 * @param strategy   the strategy to evaluate.
+	 * @param space      the board geometry.
+	 * @param first      the first secret.
+	 * @param last       one past the last secret.
+	 * @param maxGuesses the guesses allowed per game.
+	 * @param seed       the seed, e.g. the shard the range belongs to.
+	 * @return counts indexed by guesses used, with index 0 for unsolved games,
+	 *         including those the strategy gave up on.
+	 */
+	public static long[] evaluate(MastermindStrategy strategy, MastermindCodeSpace space, int first, int last,
+			int maxGuesses, long seed) {
+		long[] counts = new long[maxGuesses + 1];
+		for (int secret = first; secret < last; secret++) {
+			strategy.newGame(seed * 0x9E3779B97F4A7C15L + secret);
+			int solvedIn = 0;
+			try {
+				for (int guesses = 1; guesses <= maxGuesses; guesses++) {
+					String guess = strategy.nextGuess();
+					int feedback = space.score(space.fromString(guess), secret);
+					if (feedback == space.getWinningFeedback()) {
+						solvedIn = guesses;
+						break;
+					}
+					strategy.feedback(guess, space.getBlack(feedback), space.getWhite(feedback));
+				}
+			} catch (IllegalStateException e) {
+				solvedIn = 0;
+			}
+			counts[solvedIn]++;
+		}
+		return counts;
+	}
+
+}
@@ -38,6 +38,27 @@ public class MastermindController {
 
 	}
 
+	/**
+	 * Checks that a guess is well formed without scoring it.
+	 * 
+	 * @param guess the guess String to check.
+	 * @throws MastermindIllegalLengthException if the length of guess is not 4
+	 * @throws MastermindIllegalColorException if one of the colors in guess is not valid
+	 */
+	public void checkGuess(String guess) throws MastermindIllegalLengthException, MastermindIllegalColorException {
+
+		if (guess.length() != 4) {
+			throw new MastermindIllegalLengthException("Guess is length " + guess.length() + "; should be length 4.");
+		}
+
+		for (int i = 0; i < 4; i++) {
+			if (!validColors.contains(guess.charAt(i))) {
+				throw new MastermindIllegalColorException("Color '" + guess.charAt(i) + "' is not valid.");
+			}
+		}
+
+	}
+
 	/**
 	 * Checks if the guess is correct. 
 	 * 
@@ -51,14 +72,9 @@ public class MastermindController {
 	 */
 	public boolean isCorrect(String guess) throws MastermindIllegalLengthException, MastermindIllegalColorException {
 
-		if (guess.length() != 4) {
-			throw new MastermindIllegalLengthException("Guess is length " + guess.length() + "; should be length 4.");
-		}
+		checkGuess(guess);
 
 		for (int i = 0; i < 4; i++) {
-			if (!validColors.contains(guess.charAt(i))) {
-				throw new MastermindIllegalColorException("Color '" + guess.charAt(i) + "' is not valid.");
-			}
 			if (guess.charAt(i) != model.getColorAt(i)) {
 				return false;
 			}
@@ -82,17 +98,10 @@ public class MastermindController {
 	public int getRightColorRightPlace(String guess)
 			throws MastermindIllegalLengthException, MastermindIllegalColorException {
 
-		if (guess.length() != 4) {
-			throw new MastermindIllegalLengthException("Guess is length " + guess.length() + "; should be length 4.");
-		}
+		checkGuess(guess);
 
 		int result = 0;
 		for (int i = 0; i < 4; i++) {
-
-			if (!validColors.contains(guess.charAt(i))) {
-				throw new MastermindIllegalColorException("Color '" + guess.charAt(i) + "' is not valid.");
-			}
-
 			if (guess.charAt(i) == model.getColorAt(i)) {
 				result++;
 			}
@@ -117,9 +126,7 @@ public class MastermindController {
 	public int getRightColorWrongPlace(String guess)
 			throws MastermindIllegalColorException, MastermindIllegalLengthException {
 
-		if (guess.length() != 4) {
-			throw new MastermindIllegalLengthException("Guess is length " + guess.length() + "; should be length 4.");
-		}
+		checkGuess(guess);
 
 		int result = 0;
 
@@ -129,11 +136,6 @@ public class MastermindController {
 		// This loop gets rid of correct colors in correct place so we can examine
 		// just the incorrect part.
 		for (int i = 0; i < 4; i++) {
-
-			if (!validColors.contains(guess.charAt(i))) {
-				throw new MastermindIllegalColorException("Color '" + guess.charAt(i) + "' is not valid.");
-			}
-
 			if (guess.charAt(i) != model.getColorAt(i)) {
 				guessWrongPart.append(guess.charAt(i));
 				answerWrongPart.append(model.getColorAt(i));
@@ -0,0 +1,102 @@
+package controller;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindEvent.java
+ *
+ *         Purpose: A typed gameplay event published by a MastermindSession.
+ *         Events are immutable; a GUESS_SCORED event carries the guess and its
+ *         feedback, while GAME_STARTED, GAME_WON and GAME_LOST only carry the
+ *         session id and the number of guesses used so far.
+ *
+ */
+public class MastermindEvent {
+
+	/**
+	 * The kinds of events a session can publish.
+	 */
+	public enum Type {
+		GAME_STARTED, GUESS_SCORED, GAME_WON, GAME_LOST
+	}
+
+	private final Type type;
+	private final long sessionId;
+	private final int guessNumber;
+	private final String guess;
+	private final MastermindFeedback feedback;
+	private final long timestamp;
+
+	/**
+	 * Constructor for MastermindEvent.
+	 *
+	 * @param type        the kind of event.
+	 * @param sessionId   the id of the session the event came from.
+	 * @param guessNumber the number of guesses used when the event happened.
+	 * @param guess       the guess that was scored, or null if not a
+	 *                    GUESS_SCORED event.
+	 * @param feedback    the score of the guess, or null if not a GUESS_SCORED
+	 *                    event.
+	 */
+	public MastermindEvent(Type type, long sessionId, int guessNumber, String guess, MastermindFeedback feedback) {
+		this.type = type;
+		this.sessionId = sessionId;
+		this.guessNumber = guessNumber;
+		this.guess = guess;
+		this.feedback = feedback;
+		this.timestamp = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return the kind of event.
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the id of the session the event came from.
+	 */
+	public long getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * @return the number of guesses used when the event happened.
+	 */
+	public int getGuessNumber() {
+		return guessNumber;
+	}
+
+	/**
+	 * @return the guess that was scored, or null if not a GUESS_SCORED event.
+	 */
+	public String getGuess() {
+		return guess;
+	}
+
+	/**
+	 * @return the score of the guess, or null if not a GUESS_SCORED event.
+	 */
+	public MastermindFeedback getFeedback() {
+		return feedback;
+	}
+
+	/**
+	 * @return the wall clock time the event was created, in milliseconds.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString() {
+		String result = type + " session=" + sessionId + " guesses=" + guessNumber;
+		if (guess != null) {
+			result += " guess=" + guess + " (" + feedback + ")";
+		}
+		return result;
+	}
+
+}
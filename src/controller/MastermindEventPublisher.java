@@ -0,0 +1,109 @@
+package controller;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindEventPublisher.java
+ *
+ *         Purpose: Publishes MastermindEvents to any number of
+ *         Flow.Subscribers (metrics, journals, the GUI, ...). Each subscriber
+ *         gets its own bounded ring buffer and is driven asynchronously on the
+ *         executor, honoring the demand it signals through request(n).
+ *
+ *         Publishing never blocks the thread that scored the guess: if a
+ *         subscriber's buffer is full, the event is dropped for that
+ *         subscriber only and counted in getDroppedCount().
+ *
+ */
+public class MastermindEventPublisher implements Flow.Publisher<MastermindEvent>, AutoCloseable {
+
+	public static final int DEFAULT_BUFFER_CAPACITY = 1024;
+
+	private static MastermindEventPublisher defaultPublisher;
+
+	private final SubmissionPublisher<MastermindEvent> publisher;
+	private final LongAdder dropped = new LongAdder();
+
+	/**
+	 * Constructor for MastermindEventPublisher that delivers on the common
+	 * ForkJoinPool with the default buffer capacity.
+	 */
+	public MastermindEventPublisher() {
+		this(ForkJoinPool.commonPool(), DEFAULT_BUFFER_CAPACITY);
+	}
+
+	/**
+	 * Constructor for MastermindEventPublisher.
+	 *
+	 * @param executor       the executor subscribers are driven on.
+	 * @param bufferCapacity the maximum number of undelivered events held per
+	 *                       subscriber (rounded up to a power of two).
+	 */
+	public MastermindEventPublisher(Executor executor, int bufferCapacity) {
+		publisher = new SubmissionPublisher<MastermindEvent>(executor, bufferCapacity);
+	}
+
+	/**
+	 * Returns the publisher shared by sessions that were not given one.
+	 *
+	 * @return the shared MastermindEventPublisher.
+	 */
+	public static synchronized MastermindEventPublisher getDefault() {
+		if (defaultPublisher == null) {
+			defaultPublisher = new MastermindEventPublisher();
+		}
+		return defaultPublisher;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super MastermindEvent> subscriber) {
+		publisher.subscribe(subscriber);
+	}
+
+	/**
+	 * Offers the event to every current subscriber without blocking. Subscribers
+	 * whose buffer is full miss the event.
+	 *
+	 * @param event the event to publish.
+	 */
+	public void publish(MastermindEvent event) {
+		if (!publisher.hasSubscribers()) {
+			return;
+		}
+		publisher.offer(event, (subscriber, ignored) -> {
+			dropped.increment();
+			return false;
+		});
+	}
+
+	/**
+	 * @return the number of subscriber deliveries dropped because a buffer was
+	 *         full.
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * @return the number of current subscribers.
+	 */
+	public int getNumberOfSubscribers() {
+		return publisher.getNumberOfSubscribers();
+	}
+
+	/**
+	 * Completes every subscriber once its buffered events are delivered.
+	 */
+	@Override
+	public void close() {
+		publisher.close();
+	}
+
+}
@@ -0,0 +1,71 @@
+package controller;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindFeedback.java
+ *
+ *         Purpose: Holds the score of a single guess: the number of colors
+ *         that are right color right place (black pegs) and the number that
+ *         are right color wrong place (white pegs). Instances are immutable so
+ *         they can be handed to event subscribers on other threads.
+ *
+ */
+public class MastermindFeedback {
+
+	private final int rightColorRightPlace;
+	private final int rightColorWrongPlace;
+
+	/**
+	 * Constructor for MastermindFeedback.
+	 *
+	 * @param rightColorRightPlace the number of correct colors in the correct
+	 *                             place.
+	 * @param rightColorWrongPlace the number of correct colors in the wrong
+	 *                             place.
+	 */
+	public MastermindFeedback(int rightColorRightPlace, int rightColorWrongPlace) {
+		this.rightColorRightPlace = rightColorRightPlace;
+		this.rightColorWrongPlace = rightColorWrongPlace;
+	}
+
+	/**
+	 * Returns number of correct color in correct place.
+	 *
+	 * @return the number of correct color in correct place.
+	 */
+	public int getRightColorRightPlace() {
+		return rightColorRightPlace;
+	}
+
+	/**
+	 * Returns number of correct color in wrong place.
+	 *
+	 * @return the number of correct color in wrong place.
+	 */
+	public int getRightColorWrongPlace() {
+		return rightColorWrongPlace;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof MastermindFeedback)) {
+			return false;
+		}
+		MastermindFeedback feedback = (MastermindFeedback) other;
+		return rightColorRightPlace == feedback.rightColorRightPlace
+				&& rightColorWrongPlace == feedback.rightColorWrongPlace;
+	}
+
+	@Override
+	public int hashCode() {
+		return rightColorRightPlace * 31 + rightColorWrongPlace;
+	}
+
+	@Override
+	public String toString() {
+		return rightColorRightPlace + " right place, " + rightColorWrongPlace + " wrong place";
+	}
+
+}
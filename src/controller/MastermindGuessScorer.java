@@ -0,0 +1,31 @@
+package controller;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindGuessScorer.java
+ *
+ *         Purpose: Something outside the session that scores guesses for it,
+ *         such as a stage that gathers guesses from many sessions and scores
+ *         them together. The session checks the guess first and records the
+ *         feedback when the future completes, so an implementation only has
+ *         to work out the pegs.
+ *
+ */
+@FunctionalInterface
+public interface MastermindGuessScorer {
+
+	/**
+	 * Scores a guess against an answer.
+	 *
+	 * @param guess  a valid guess String.
+	 * @param answer the answer String of the game.
+	 * @return a future completed with the feedback. It may be completed on a
+	 *         thread belonging to the scorer.
+	 */
+	CompletableFuture<MastermindFeedback> score(String guess, String answer);
+
+}
@@ -0,0 +1,299 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import model.MastermindModel;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindSession.java
+ *
+ *         Purpose: A single game of Mastermind. The session owns the model and
+ *         controller for the game, keeps the guesses made so far with their
+ *         feedback, and decides when the game is won or lost (the player has
+ *         10 guesses). Every change is published as a MastermindEvent so that
+ *         things other than the view can observe gameplay, and change
+ *         listeners (such as a snapshot store) are called synchronously after
+ *         every scored guess.
+ *
+ *         The session's lock only guards its own state. Events are published
+ *         and listeners called after it is released, so a slow subscriber or
+ *         listener never holds up readers of the session.
+ *
+ */
+public class MastermindSession {
+
+	public static final int MAX_GUESSES = 10;
+
+	private static final AtomicLong nextId = new AtomicLong(1);
+
+	private final long id;
+	private final MastermindModel model;
+	private final MastermindController controller;
+	private final MastermindEventPublisher publisher;
+	private final ArrayList<String> guesses = new ArrayList<String>();
+	private final ArrayList<MastermindFeedback> feedback = new ArrayList<MastermindFeedback>();
+	private final ArrayList<Consumer<MastermindSession>> changeListeners = new ArrayList<Consumer<MastermindSession>>();
+	private boolean won;
+
+	/**
+	 * Constructor for MastermindSession that publishes to the default
+	 * publisher.
+	 *
+	 * @param model the model holding the answer for this game.
+	 */
+	public MastermindSession(MastermindModel model) {
+		this(model, MastermindEventPublisher.getDefault());
+	}
+
+	/**
+	 * Constructor for MastermindSession. Publishes a GAME_STARTED event.
+	 *
+	 * @param model     the model holding the answer for this game.
+	 * @param publisher where events are published, or null for no events.
+	 */
+	public MastermindSession(MastermindModel model, MastermindEventPublisher publisher) {
+		this.id = nextId.getAndIncrement();
+		this.model = model;
+		this.controller = new MastermindController(model);
+		this.publisher = publisher;
+		publish(MastermindEvent.Type.GAME_STARTED, null, null);
+	}
+
+	/**
+	 * Constructor for MastermindSession that restores a game in progress, e.g.
+	 * from a snapshot. Does not publish a GAME_STARTED event.
+	 *
+	 * @param id        the id the session had before.
+	 * @param model     the model holding the answer for this game.
+	 * @param guesses   the guesses scored so far, oldest first.
+	 * @param feedback  the feedback for each guess, oldest first.
+	 * @param publisher where events are published, or null for no events.
+	 */
+	public MastermindSession(long id, MastermindModel model, List<String> guesses, List<MastermindFeedback> feedback,
+			MastermindEventPublisher publisher) {
+		this.id = id;
+		this.model = model;
+		this.controller = new MastermindController(model);
+		this.publisher = publisher;
+		this.guesses.addAll(guesses);
+		this.feedback.addAll(feedback);
+		this.won = !feedback.isEmpty() && feedback.get(feedback.size() - 1).getRightColorRightPlace() == 4;
+		reserveId(id);
+	}
+
+	/**
+	 * Makes sure no new session is given an id that is already in use, e.g. by
+	 * a saved game that has not been restored yet.
+	 *
+	 * @param id an id in use.
+	 */
+	public static void reserveId(long id) {
+		nextId.accumulateAndGet(id + 1, Math::max);
+	}
+
+	/**
+	 * Scores a guess and records it.
+	 *
+	 * Invalid guesses throw before anything is recorded, so they do not use up
+	 * one of the player's guesses. Publishes GUESS_SCORED, followed by GAME_WON
+	 * or GAME_LOST if the guess ended the game.
+	 *
+	 * @param guess the guess String to evaluate.
+	 * @return the feedback for the guess.
+	 * @throws MastermindIllegalLengthException if the length of guess is not 4
+	 * @throws MastermindIllegalColorException  if one of the colors in guess is
+	 *                                          not valid
+	 * @throws IllegalStateException            if the game is already over
+	 */
+	public MastermindFeedback submitGuess(String guess)
+			throws MastermindIllegalLengthException, MastermindIllegalColorException {
+		if (isOver()) {
+			throw new IllegalStateException("Session " + id + " is already over.");
+		}
+
+		return record(guess, new MastermindFeedback(controller.getRightColorRightPlace(guess),
+				controller.getRightColorWrongPlace(guess)));
+	}
+
+	/**
+	 * Scores a guess through a MastermindGuessScorer and records it on the
+	 * common ForkJoinPool when the feedback comes back.
+	 *
+	 * @param guess  the guess String to evaluate.
+	 * @param scorer the scorer.
+	 * @return a future completed with the feedback once the guess is
+	 *         recorded.
+	 * @throws MastermindIllegalLengthException if the length of guess is not 4
+	 * @throws MastermindIllegalColorException  if one of the colors in guess is
+	 *                                          not valid
+	 * @throws IllegalStateException            if the game is already over
+	 * @see #submitGuess(String, MastermindGuessScorer, Executor)
+	 */
+	public CompletableFuture<MastermindFeedback> submitGuess(String guess, MastermindGuessScorer scorer)
+			throws MastermindIllegalLengthException, MastermindIllegalColorException {
+		return submitGuess(guess, scorer, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Scores a guess through a MastermindGuessScorer, such as one that scores
+	 * guesses from many sessions together, and records it when the feedback
+	 * comes back. The guess is checked here, so an invalid one throws straight
+	 * away.
+	 *
+	 * Recording publishes events and calls the change listeners, so it runs
+	 * on the executor rather than on whichever thread the scorer completes
+	 * its future on.
+	 *
+	 * @param guess    the guess String to evaluate.
+	 * @param scorer   the scorer.
+	 * @param executor where the guess is recorded.
+	 * @return a future completed with the feedback once the guess is
+	 *         recorded, or with an IllegalStateException if the game ended
+	 *         while the guess was being scored.
+	 * @throws MastermindIllegalLengthException if the length of guess is not 4
+	 * @throws MastermindIllegalColorException  if one of the colors in guess is
+	 *                                          not valid
+	 * @throws IllegalStateException            if the game is already over
+	 */
+	public CompletableFuture<MastermindFeedback> submitGuess(String guess, MastermindGuessScorer scorer,
+			Executor executor) throws MastermindIllegalLengthException, MastermindIllegalColorException {
+		controller.checkGuess(guess);
+		if (isOver()) {
+			throw new IllegalStateException("Session " + id + " is already over.");
+		}
+
+		String answer = "" + model.getColorAt(0) + model.getColorAt(1) + model.getColorAt(2) + model.getColorAt(3);
+		return scorer.score(guess, answer).thenApplyAsync(result -> record(guess, result), executor);
+	}
+
+	/**
+	 * Records a scored guess, then publishes its events and calls the change
+	 * listeners once the session's lock is released.
+	 */
+	private MastermindFeedback record(String guess, MastermindFeedback result) {
+		ArrayList<MastermindEvent> events = new ArrayList<MastermindEvent>(2);
+		ArrayList<Consumer<MastermindSession>> listeners;
+		synchronized (this) {
+			if (isOver()) {
+				throw new IllegalStateException("Session " + id + " is already over.");
+			}
+			guesses.add(guess);
+			feedback.add(result);
+			won = result.getRightColorRightPlace() == 4;
+
+			events.add(event(MastermindEvent.Type.GUESS_SCORED, guess, result));
+			if (won) {
+				events.add(event(MastermindEvent.Type.GAME_WON, null, null));
+			} else if (isOver()) {
+				events.add(event(MastermindEvent.Type.GAME_LOST, null, null));
+			}
+			listeners = new ArrayList<Consumer<MastermindSession>>(changeListeners);
+		}
+
+		if (publisher != null) {
+			for (MastermindEvent event : events) {
+				publisher.publish(event);
+			}
+		}
+		for (Consumer<MastermindSession> listener : listeners) {
+			listener.accept(this);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a listener that is called, on the guessing thread and without the
+	 * session's lock held, after every scored guess.
+	 *
+	 * @param listener the listener to add.
+	 */
+	public synchronized void addChangeListener(Consumer<MastermindSession> listener) {
+		changeListeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added with addChangeListener(). A guess being scored
+	 * at the same time may still call it once.
+	 *
+	 * @param listener the listener to remove.
+	 */
+	public synchronized void removeChangeListener(Consumer<MastermindSession> listener) {
+		changeListeners.remove(listener);
+	}
+
+	/**
+	 * Publishes an event for this session if it has a publisher.
+	 */
+	private void publish(MastermindEvent.Type type, String guess, MastermindFeedback result) {
+		if (publisher != null) {
+			publisher.publish(event(type, guess, result));
+		}
+	}
+
+	/**
+	 * Makes an event for this session as it stands.
+	 */
+	private MastermindEvent event(MastermindEvent.Type type, String guess, MastermindFeedback result) {
+		return new MastermindEvent(type, id, guesses.size(), guess, result);
+	}
+
+	/**
+	 * @return the unique id of this session.
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * @return the model holding the answer for this game.
+	 */
+	public MastermindModel getModel() {
+		return model;
+	}
+
+	/**
+	 * @return the number of guesses scored so far.
+	 */
+	public synchronized int getGuessesUsed() {
+		return guesses.size();
+	}
+
+	/**
+	 * @return the guesses scored so far, oldest first.
+	 */
+	public synchronized List<String> getGuesses() {
+		return Collections.unmodifiableList(new ArrayList<String>(guesses));
+	}
+
+	/**
+	 * @return the feedback for each guess scored so far, oldest first.
+	 */
+	public synchronized List<MastermindFeedback> getFeedback() {
+		return Collections.unmodifiableList(new ArrayList<MastermindFeedback>(feedback));
+	}
+
+	/**
+	 * @return true if the last guess was correct, false otherwise.
+	 */
+	public synchronized boolean isWon() {
+		return won;
+	}
+
+	/**
+	 * @return true if the game was won or all guesses are used up.
+	 */
+	public synchronized boolean isOver() {
+		return won || guesses.size() >= MAX_GUESSES;
+	}
+
+}
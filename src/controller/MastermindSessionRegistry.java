@@ -0,0 +1,266 @@
+package controller;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindSessionRegistry.java
+ *
+ *         Purpose: Holds the games in progress by id and evicts the ones
+ *         nobody is playing. A player who closes the window never loses, so
+ *         without this abandoned sessions would pile up forever.
+ *
+ *         Every registered session has one timeout on a MastermindTimingWheel
+ *         that is pushed back after each guess, an O(1) operation that
+ *         allocates nothing. A session that goes idle for the timeout is
+ *         removed from the registry, after being handed to the expiry
+ *         listener if there is one; pass MastermindSnapshotStore::update to
+ *         write the game to disk before it is dropped. A finished game is
+ *         removed as soon as its last guess is scored. Either way the
+ *         registry takes its listener off the session, so nothing of the
+ *         session stays behind and memory is flat however many games come and
+ *         go. A session is in the registry before its timeout is on the wheel,
+ *         and a listener only acts while its own registration is the one
+ *         held, so a late guess on an evicted session cannot bring it back.
+ *
+ */
+public class MastermindSessionRegistry implements AutoCloseable {
+
+	public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000;
+	public static final long DEFAULT_TICK_MILLIS = 1000;
+
+	private final long idleTimeoutMillis;
+	private final long tickMillis;
+	private final Consumer<MastermindSession> expiryListener;
+	private final LongSupplier clock;
+	private final MastermindTimingWheel<Entry> wheel;
+	private final ConcurrentHashMap<Long, Entry> sessions = new ConcurrentHashMap<Long, Entry>();
+	private final LongAdder expired = new LongAdder();
+	private final Object wakeUp = new Object();
+	private Thread reaper;
+	private volatile boolean closed;
+
+	/**
+	 * Constructor for MastermindSessionRegistry that uses the system clock.
+	 * Call start() to begin expiring sessions.
+	 *
+	 * @param idleTimeoutMillis how long a session may go without a guess.
+	 * @param tickMillis        how often idle sessions are looked for.
+	 * @param expiryListener    called with each session before it is evicted,
+	 *                          or null.
+	 */
+	public MastermindSessionRegistry(long idleTimeoutMillis, long tickMillis,
+			Consumer<MastermindSession> expiryListener) {
+		this(idleTimeoutMillis, tickMillis, expiryListener, () -> System.nanoTime() / 1000000);
+	}
+
+	/**
+	 * Constructor for MastermindSessionRegistry.
+	 *
+	 * @param idleTimeoutMillis how long a session may go without a guess.
+	 * @param tickMillis        how often idle sessions are looked for.
+	 * @param expiryListener    called with each session before it is evicted,
+	 *                          or null.
+	 * @param clock             the current time in milliseconds.
+	 * @throws IllegalArgumentException if the timeout or tick is not
+	 *                                  positive.
+	 */
+	public MastermindSessionRegistry(long idleTimeoutMillis, long tickMillis,
+			Consumer<MastermindSession> expiryListener, LongSupplier clock) {
+		if (idleTimeoutMillis <= 0 || tickMillis <= 0) {
+			throw new IllegalArgumentException("Idle timeout and tick must be positive.");
+		}
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.tickMillis = tickMillis;
+		this.expiryListener = expiryListener;
+		this.clock = clock;
+		// One turn of the wheel covers the timeout, so every timeout expires
+		// on the first visit to its bucket.
+		this.wheel = new MastermindTimingWheel<Entry>(tickMillis,
+				(int) Math.min(1 << 20, idleTimeoutMillis / tickMillis + 1), clock.getAsLong());
+	}
+
+	/**
+	 * Starts a background thread that expires idle sessions every tick.
+	 */
+	public synchronized void start() {
+		if (reaper == null) {
+			reaper = new Thread(this::reap, "mastermind-session-reaper");
+			reaper.setDaemon(true);
+			reaper.start();
+		}
+	}
+
+	/**
+	 * Adds a session. It is evicted after going idle for the timeout, or when
+	 * the game ends. Registering a session with the same id as one already
+	 * held replaces it.
+	 *
+	 * @param session the session to add.
+	 */
+	public void register(MastermindSession session) {
+		Entry entry = new Entry(session);
+		Entry replaced = sessions.put(session.getId(), entry);
+		if (replaced != null) {
+			drop(replaced);
+		}
+		wheel.schedule(entry.timeout, clock.getAsLong() + idleTimeoutMillis);
+		session.addChangeListener(entry);
+	}
+
+	/**
+	 * @param id a session id.
+	 * @return the session, or null if it was never registered or has been
+	 *         evicted.
+	 */
+	public MastermindSession get(long id) {
+		Entry entry = sessions.get(id);
+		return entry == null ? null : entry.session;
+	}
+
+	/**
+	 * Removes a session without calling the expiry listener.
+	 *
+	 * @param id the session id.
+	 * @return the session, or null if it was not registered.
+	 */
+	public MastermindSession remove(long id) {
+		Entry entry = sessions.remove(id);
+		if (entry == null) {
+			return null;
+		}
+		drop(entry);
+		return entry.session;
+	}
+
+	/**
+	 * Takes a registration that is no longer held off the wheel and off its
+	 * session.
+	 */
+	private void drop(Entry entry) {
+		wheel.cancel(entry.timeout);
+		entry.session.removeChangeListener(entry);
+	}
+
+	/**
+	 * Evicts every session that has been idle for the timeout. The reaper
+	 * thread calls this every tick; it can also be called directly.
+	 *
+	 * @return the number of sessions evicted.
+	 */
+	public int expireIdleSessions() {
+		int evicted = 0;
+		for (Entry entry : wheel.advance(clock.getAsLong())) {
+			long id = entry.session.getId();
+			// A timeout put on the wheel just as its session was removed
+			// belongs to nobody.
+			if (sessions.get(id) != entry) {
+				entry.session.removeChangeListener(entry);
+				continue;
+			}
+			if (expiryListener != null) {
+				expiryListener.accept(entry.session);
+			}
+			if (sessions.remove(id, entry)) {
+				evicted++;
+			}
+			entry.session.removeChangeListener(entry);
+		}
+		expired.add(evicted);
+		return evicted;
+	}
+
+	/**
+	 * Body of the reaper thread.
+	 */
+	private void reap() {
+		while (!closed) {
+			try {
+				synchronized (wakeUp) {
+					if (!closed) {
+						wakeUp.wait(tickMillis);
+					}
+				}
+				if (!closed) {
+					expireIdleSessions();
+				}
+			} catch (InterruptedException e) {
+				return;
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of sessions held.
+	 */
+	public int size() {
+		return sessions.size();
+	}
+
+	/**
+	 * @return the number of sessions evicted for going idle.
+	 */
+	public long getExpiredCount() {
+		return expired.sum();
+	}
+
+	/**
+	 * Stops the reaper thread. Sessions still held are left as they are.
+	 */
+	@Override
+	public void close() {
+		Thread thread;
+		synchronized (this) {
+			thread = reaper;
+		}
+		synchronized (wakeUp) {
+			closed = true;
+			wakeUp.notifyAll();
+		}
+		if (thread != null) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * A registered session, its timeout and the listener that keeps the
+	 * timeout up to date. The listener only acts while this entry is the one
+	 * held for the session's id: a guess being scored as the session is
+	 * evicted or replaced may still call it once.
+	 */
+	private class Entry implements Consumer<MastermindSession> {
+		private final MastermindSession session;
+		private final MastermindTimingWheel.Timeout<Entry> timeout;
+
+		private Entry(MastermindSession session) {
+			this.session = session;
+			this.timeout = wheel.newTimeout(this);
+		}
+
+		@Override
+		public void accept(MastermindSession changed) {
+			if (sessions.get(changed.getId()) != this) {
+				return;
+			}
+			if (changed.isOver()) {
+				if (sessions.remove(changed.getId(), this)) {
+					drop(this);
+				}
+			} else {
+				wheel.reschedule(timeout, clock.getAsLong() + idleTimeoutMillis);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,228 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindTimingWheel.java
+ *
+ *         Purpose: A hashed timing wheel: a ring of buckets, one per tick,
+ *         each holding a doubly-linked list of timeouts. A timeout goes in the
+ *         bucket for its deadline tick modulo the number of buckets, so
+ *         scheduling, rescheduling and cancelling are all O(1) however many
+ *         timeouts there are. Advancing the wheel only looks at the buckets
+ *         for the ticks that have passed; a timeout more than one turn of the
+ *         wheel away is skipped until its turn comes round.
+ *
+ *         The list links live in the Timeout itself, so a timeout that is
+ *         rescheduled after every guess allocates nothing after the first
+ *         schedule(). All methods are synchronized.
+ *
+ */
+public class MastermindTimingWheel<T> {
+
+	private final long tickMillis;
+	private final Timeout<T>[] buckets;
+	private final int mask;
+	private long currentTick;
+	private int size;
+
+	/**
+	 * Constructor for MastermindTimingWheel.
+	 *
+	 * @param tickMillis  the length of a tick; deadlines are rounded up to a
+	 *                    whole tick.
+	 * @param bucketCount the number of buckets, rounded up to a power of two.
+	 *                    Deadlines within one turn of the wheel are the
+	 *                    cheapest.
+	 * @param nowMillis   the current time.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public MastermindTimingWheel(long tickMillis, int bucketCount, long nowMillis) {
+		if (tickMillis <= 0 || bucketCount <= 0 || bucketCount > 1 << 30) {
+			throw new IllegalArgumentException("Tick must be positive and bucket count in 1.." + (1 << 30) + ".");
+		}
+		int rounded = 1;
+		while (rounded < bucketCount) {
+			rounded <<= 1;
+		}
+		this.tickMillis = tickMillis;
+		this.buckets = new Timeout[rounded];
+		this.mask = buckets.length - 1;
+		this.currentTick = nowMillis / tickMillis;
+	}
+
+	/**
+	 * Schedules a new timeout.
+	 *
+	 * @param item           what the timeout is for.
+	 * @param deadlineMillis when it expires.
+	 * @return the timeout, for rescheduling or cancelling it.
+	 */
+	public synchronized Timeout<T> schedule(T item, long deadlineMillis) {
+		Timeout<T> timeout = newTimeout(item);
+		link(timeout, deadlineMillis);
+		return timeout;
+	}
+
+	/**
+	 * Makes a timeout without putting it on the wheel, so it can be handed
+	 * out before it can expire. Put it on with schedule(Timeout, long).
+	 *
+	 * @param item what the timeout is for.
+	 * @return the timeout.
+	 */
+	public Timeout<T> newTimeout(T item) {
+		return new Timeout<T>(item);
+	}
+
+	/**
+	 * Puts a timeout from newTimeout() on the wheel.
+	 *
+	 * @param timeout        the timeout.
+	 * @param deadlineMillis when it expires.
+	 * @throws IllegalStateException if the timeout is already pending.
+	 */
+	public synchronized void schedule(Timeout<T> timeout, long deadlineMillis) {
+		if (timeout.pending) {
+			throw new IllegalStateException("The timeout is already scheduled.");
+		}
+		link(timeout, deadlineMillis);
+	}
+
+	/**
+	 * Moves a pending timeout to a new deadline.
+	 *
+	 * @param timeout        the timeout.
+	 * @param deadlineMillis its new deadline.
+	 * @return false if the timeout has already expired or been cancelled.
+	 */
+	public synchronized boolean reschedule(Timeout<T> timeout, long deadlineMillis) {
+		if (!timeout.pending) {
+			return false;
+		}
+		unlink(timeout);
+		link(timeout, deadlineMillis);
+		return true;
+	}
+
+	/**
+	 * Cancels a pending timeout.
+	 *
+	 * @param timeout the timeout.
+	 * @return false if the timeout has already expired or been cancelled.
+	 */
+	public synchronized boolean cancel(Timeout<T> timeout) {
+		if (!timeout.pending) {
+			return false;
+		}
+		unlink(timeout);
+		return true;
+	}
+
+	/**
+	 * Moves the wheel on to the current time and removes every timeout whose
+	 * deadline has passed.
+	 *
+	 * @param nowMillis the current time.
+	 * @return the items of the expired timeouts, in no particular order.
+	 */
+	public synchronized List<T> advance(long nowMillis) {
+		ArrayList<T> expired = new ArrayList<T>();
+		long nowTick = nowMillis / tickMillis;
+		// Once every bucket has been visited, later ticks would only revisit
+		// them, so a long gap costs at most one turn of the wheel.
+		long firstTick = Math.max(currentTick + 1, nowTick - mask);
+		for (long tick = firstTick; tick <= nowTick; tick++) {
+			Timeout<T> timeout = buckets[(int) (tick & mask)];
+			while (timeout != null) {
+				Timeout<T> next = timeout.next;
+				if (timeout.deadlineTick <= nowTick) {
+					unlink(timeout);
+					expired.add(timeout.item);
+				}
+				timeout = next;
+			}
+		}
+		currentTick = Math.max(currentTick, nowTick);
+		return expired;
+	}
+
+	/**
+	 * @return the number of pending timeouts.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of buckets.
+	 */
+	public int getBucketCount() {
+		return buckets.length;
+	}
+
+	/**
+	 * Puts a timeout in the bucket for its deadline. A deadline that has
+	 * already passed goes in the next tick's bucket.
+	 */
+	private void link(Timeout<T> timeout, long deadlineMillis) {
+		long tick = Math.max(currentTick + 1, (deadlineMillis + tickMillis - 1) / tickMillis);
+		int bucket = (int) (tick & mask);
+		timeout.deadlineTick = tick;
+		timeout.bucket = bucket;
+		timeout.prev = null;
+		timeout.next = buckets[bucket];
+		if (timeout.next != null) {
+			timeout.next.prev = timeout;
+		}
+		buckets[bucket] = timeout;
+		timeout.pending = true;
+		size++;
+	}
+
+	/**
+	 * Takes a timeout out of its bucket.
+	 */
+	private void unlink(Timeout<T> timeout) {
+		if (timeout.prev != null) {
+			timeout.prev.next = timeout.next;
+		} else {
+			buckets[timeout.bucket] = timeout.next;
+		}
+		if (timeout.next != null) {
+			timeout.next.prev = timeout.prev;
+		}
+		timeout.prev = null;
+		timeout.next = null;
+		timeout.pending = false;
+		size--;
+	}
+
+	/**
+	 * A timeout on the wheel, which is also its node in a bucket's list.
+	 */
+	public static class Timeout<T> {
+		private final T item;
+		private long deadlineTick;
+		private int bucket;
+		private Timeout<T> prev;
+		private Timeout<T> next;
+		private boolean pending;
+
+		private Timeout(T item) {
+			this.item = item;
+		}
+
+		/**
+		 * @return what the timeout is for.
+		 */
+		public T getItem() {
+			return item;
+		}
+	}
+
+}
@@ -0,0 +1,167 @@
+package persistence;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import controller.MastermindEventPublisher;
+import controller.MastermindFeedback;
+import controller.MastermindSession;
+import model.MastermindModel;
+import solver.MastermindCodeSpace;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindSnapshot.java
+ *
+ *         Purpose: The complete state of one game packed into a fixed-size
+ *         binary record of SIZE bytes. Codes are stored as their index in
+ *         MastermindCodeSpace.CLASSIC and feedback as one byte per guess:
+ *
+ *         	0	long	session id
+ *         	8	short	secret
+ *         	10	byte	number of guesses used
+ *         	11	byte	flags (LIVE, or 0 for a deleted session)
+ *         	12	short[10]	guesses
+ *         	32	byte[10]	feedback, right place in the high nibble
+ *         	42	short	unused
+ *         	44	int	CRC32 of bytes 0 to 43
+ *
+ *         The checksum lets recovery skip a record that was only partly
+ *         written when the process died.
+ *
+ */
+public class MastermindSnapshot {
+
+	public static final int SIZE = 48;
+
+	private static final int LIVE = 1;
+	private static final int CHECKSUM_OFFSET = 44;
+
+	private final byte[] bytes;
+
+	/**
+	 * Constructor for MastermindSnapshot; wraps an encoded record.
+	 */
+	private MastermindSnapshot(byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Takes a snapshot of a session.
+	 *
+	 * @param session the session to snapshot.
+	 * @return the snapshot.
+	 */
+	public static MastermindSnapshot of(MastermindSession session) {
+		MastermindCodeSpace space = MastermindCodeSpace.CLASSIC;
+		ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+		List<String> guesses = session.getGuesses();
+		List<MastermindFeedback> feedback = session.getFeedback();
+		MastermindModel model = session.getModel();
+		String secret = "" + model.getColorAt(0) + model.getColorAt(1) + model.getColorAt(2) + model.getColorAt(3);
+
+		buffer.putLong(0, session.getId());
+		buffer.putShort(8, (short) space.fromString(secret));
+		buffer.put(10, (byte) guesses.size());
+		buffer.put(11, (byte) LIVE);
+		for (int i = 0; i < guesses.size(); i++) {
+			buffer.putShort(12 + 2 * i, (short) space.fromString(guesses.get(i)));
+			MastermindFeedback score = feedback.get(i);
+			buffer.put(32 + i, (byte) (score.getRightColorRightPlace() << 4 | score.getRightColorWrongPlace()));
+		}
+		return new MastermindSnapshot(seal(buffer.array()));
+	}
+
+	/**
+	 * Makes a record marking a session as deleted.
+	 *
+	 * @param sessionId the id of the deleted session.
+	 * @return the snapshot.
+	 */
+	public static MastermindSnapshot tombstone(long sessionId) {
+		ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+		buffer.putLong(0, sessionId);
+		return new MastermindSnapshot(seal(buffer.array()));
+	}
+
+	/**
+	 * Reads a record from the buffer's current position, advancing it by SIZE.
+	 *
+	 * @param buffer the buffer to read from.
+	 * @return the snapshot, or null if the checksum does not match.
+	 */
+	public static MastermindSnapshot readFrom(ByteBuffer buffer) {
+		byte[] bytes = new byte[SIZE];
+		buffer.get(bytes);
+		if (ByteBuffer.wrap(bytes).getInt(CHECKSUM_OFFSET) != checksum(bytes)) {
+			return null;
+		}
+		return new MastermindSnapshot(bytes);
+	}
+
+	/**
+	 * Writes the record at the buffer's current position, advancing it by SIZE.
+	 *
+	 * @param buffer the buffer to write to.
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		buffer.put(bytes);
+	}
+
+	/**
+	 * Rebuilds the session the snapshot was taken of.
+	 *
+	 * @param publisher where the restored session publishes events, or null.
+	 * @return the restored session.
+	 */
+	public MastermindSession restore(MastermindEventPublisher publisher) {
+		MastermindCodeSpace space = MastermindCodeSpace.CLASSIC;
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int guessesUsed = buffer.get(10);
+		ArrayList<String> guesses = new ArrayList<String>(guessesUsed);
+		ArrayList<MastermindFeedback> feedback = new ArrayList<MastermindFeedback>(guessesUsed);
+		for (int i = 0; i < guessesUsed; i++) {
+			guesses.add(space.toString(buffer.getShort(12 + 2 * i)));
+			int score = buffer.get(32 + i);
+			feedback.add(new MastermindFeedback(score >>> 4, score & 15));
+		}
+		MastermindModel model = new MastermindModel(space.toString(buffer.getShort(8)));
+		return new MastermindSession(getSessionId(), model, guesses, feedback, publisher);
+	}
+
+	/**
+	 * @return the id of the session the snapshot was taken of.
+	 */
+	public long getSessionId() {
+		return ByteBuffer.wrap(bytes).getLong(0);
+	}
+
+	/**
+	 * @return true if this is a game in progress, false if it is a tombstone.
+	 */
+	public boolean isLive() {
+		return (bytes[11] & LIVE) != 0;
+	}
+
+	/**
+	 * Stores the checksum of the record in its last four bytes.
+	 */
+	private static byte[] seal(byte[] bytes) {
+		ByteBuffer.wrap(bytes).putInt(CHECKSUM_OFFSET, checksum(bytes));
+		return bytes;
+	}
+
+	/**
+	 * Returns the CRC32 of every byte before the checksum.
+	 */
+	private static int checksum(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, CHECKSUM_OFFSET);
+		return (int) crc.getValue();
+	}
+
+}
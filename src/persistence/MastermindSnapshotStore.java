@@ -0,0 +1,266 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import controller.MastermindEventPublisher;
+import controller.MastermindSession;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindSnapshotStore.java
+ *
+ *         Purpose: Keeps a snapshot of every game in progress in a local file
+ *         so the games survive the process dying. The file is an array of
+ *         MastermindSnapshot.SIZE byte slots, one per session.
+ *
+ *         Updates are write-behind: update() only puts the latest snapshot in
+ *         a map keyed by session id, so repeated updates to the same session
+ *         between flushes are coalesced into one write. A background thread
+ *         writes the map out every flush interval and forces it to disk, so a
+ *         crash loses at most the guesses of the last flush interval. Finished
+ *         and discarded games are written as tombstones and their slots
+ *         reused.
+ *
+ *         When the store is opened, the whole file is read in large blocks and
+ *         every live snapshot is kept for recover(). Their ids are reserved at
+ *         once, so sessions created before recover() is called cannot take
+ *         over a saved game's slot.
+ *
+ */
+public class MastermindSnapshotStore implements AutoCloseable {
+
+	private static final int READ_BLOCK_SLOTS = 16384;
+
+	private final FileChannel channel;
+	private final long flushIntervalMillis;
+	private final ConcurrentHashMap<Long, MastermindSnapshot> dirty = new ConcurrentHashMap<Long, MastermindSnapshot>();
+	private final HashMap<Long, Long> slots = new HashMap<Long, Long>();
+	private final ArrayDeque<Long> freeSlots = new ArrayDeque<Long>();
+	private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(MastermindSnapshot.SIZE);
+	private final ArrayList<MastermindSnapshot> recovered = new ArrayList<MastermindSnapshot>();
+	private final Object wakeUp = new Object();
+	private final Thread writer;
+	private long nextSlot;
+	private volatile boolean closed;
+
+	/**
+	 * Constructor for MastermindSnapshotStore. Opens (or creates) the file,
+	 * reads back every live snapshot and starts the write-behind thread.
+	 *
+	 * @param file                the file snapshots are kept in.
+	 * @param flushIntervalMillis how long updates wait before being written.
+	 * @throws IOException if the file cannot be opened or read.
+	 */
+	public MastermindSnapshotStore(Path file, long flushIntervalMillis) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		this.flushIntervalMillis = flushIntervalMillis;
+		readSlots();
+
+		writer = new Thread(this::writeBehind, "mastermind-snapshot-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Reads every slot in the file, remembering which are live and which can
+	 * be reused, and reserves the ids of the live ones.
+	 */
+	private void readSlots() throws IOException {
+		long fileSlots = channel.size() / MastermindSnapshot.SIZE;
+		ByteBuffer block = ByteBuffer.allocateDirect(READ_BLOCK_SLOTS * MastermindSnapshot.SIZE);
+		for (long first = 0; first < fileSlots; first += READ_BLOCK_SLOTS) {
+			block.clear();
+			block.limit((int) Math.min(READ_BLOCK_SLOTS, fileSlots - first) * MastermindSnapshot.SIZE);
+			long position = first * MastermindSnapshot.SIZE;
+			while (block.hasRemaining()) {
+				int read = channel.read(block, position + block.position());
+				if (read < 0) {
+					break;
+				}
+			}
+			block.flip();
+			for (long slot = first; block.remaining() >= MastermindSnapshot.SIZE; slot++) {
+				MastermindSnapshot snapshot = MastermindSnapshot.readFrom(block);
+				boolean live = snapshot != null && snapshot.isLive();
+				if (live) {
+					MastermindSession.reserveId(snapshot.getSessionId());
+				}
+				if (live && !slots.containsKey(snapshot.getSessionId())) {
+					slots.put(snapshot.getSessionId(), slot);
+					recovered.add(snapshot);
+				} else {
+					freeSlots.add(slot);
+				}
+			}
+		}
+		nextSlot = fileSlots;
+	}
+
+	/**
+	 * Restores every game that was in progress when the file was last written.
+	 * Sessions are rebuilt in parallel and are tracked by this store again.
+	 *
+	 * @param publisher where the restored sessions publish events, or null.
+	 * @return the restored sessions.
+	 */
+	public List<MastermindSession> recover(MastermindEventPublisher publisher) {
+		List<MastermindSession> sessions = recovered.parallelStream().map(snapshot -> snapshot.restore(publisher))
+				.collect(Collectors.toList());
+		for (MastermindSession session : sessions) {
+			session.addChangeListener(this::update);
+		}
+		return sessions;
+	}
+
+	/**
+	 * Starts tracking a session: it is written now and after every guess.
+	 *
+	 * @param session the session to track.
+	 */
+	public void track(MastermindSession session) {
+		session.addChangeListener(this::update);
+		update(session);
+	}
+
+	/**
+	 * Stops keeping a session, such as a recovered game that will not be
+	 * resumed: it is written as a tombstone at the next flush, so it is not
+	 * recovered again.
+	 *
+	 * @param session the session to forget.
+	 */
+	public void discard(MastermindSession session) {
+		if (!closed) {
+			dirty.put(session.getId(), MastermindSnapshot.tombstone(session.getId()));
+		}
+	}
+
+	/**
+	 * Queues the current state of the session to be written. A finished game
+	 * is queued for deletion instead. Does nothing once the store is closed,
+	 * so games can carry on while the store shuts down.
+	 *
+	 * @param session the session that changed.
+	 */
+	public void update(MastermindSession session) {
+		if (closed) {
+			return;
+		}
+		if (session.isOver()) {
+			dirty.put(session.getId(), MastermindSnapshot.tombstone(session.getId()));
+		} else {
+			dirty.put(session.getId(), MastermindSnapshot.of(session));
+		}
+	}
+
+	/**
+	 * Writes every queued snapshot now and forces them to disk.
+	 *
+	 * @throws IOException if a write fails.
+	 */
+	public synchronized void flush() throws IOException {
+		boolean written = false;
+		for (Long id : dirty.keySet()) {
+			MastermindSnapshot snapshot = dirty.remove(id);
+			if (snapshot != null) {
+				write(id, snapshot);
+				written = true;
+			}
+		}
+		if (written) {
+			channel.force(false);
+		}
+	}
+
+	/**
+	 * Writes one snapshot to the session's slot, giving it a slot first if
+	 * needed. A tombstone frees the slot.
+	 */
+	private void write(long id, MastermindSnapshot snapshot) throws IOException {
+		Long slot = slots.get(id);
+		if (slot == null) {
+			if (!snapshot.isLive()) {
+				return;
+			}
+			slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.poll();
+			slots.put(id, slot);
+		}
+		if (!snapshot.isLive()) {
+			slots.remove(id);
+			freeSlots.add(slot);
+		}
+
+		writeBuffer.clear();
+		snapshot.writeTo(writeBuffer);
+		writeBuffer.flip();
+		long position = slot * MastermindSnapshot.SIZE;
+		while (writeBuffer.hasRemaining()) {
+			channel.write(writeBuffer, position + writeBuffer.position());
+		}
+	}
+
+	/**
+	 * Body of the write-behind thread. It is woken with notify rather than
+	 * interrupted, since interrupting a FileChannel write closes the channel.
+	 */
+	private void writeBehind() {
+		while (!closed) {
+			try {
+				synchronized (wakeUp) {
+					if (!closed) {
+						wakeUp.wait(flushIntervalMillis);
+					}
+				}
+				if (!closed) {
+					flush();
+				}
+			} catch (InterruptedException e) {
+				return;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of snapshots waiting to be written.
+	 */
+	public int getPendingCount() {
+		return dirty.size();
+	}
+
+	/**
+	 * Stops the write-behind thread, writes everything still queued and closes
+	 * the file.
+	 *
+	 * @throws IOException if the last writes fail.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (wakeUp) {
+			closed = true;
+			wakeUp.notifyAll();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+		channel.close();
+	}
+
+}
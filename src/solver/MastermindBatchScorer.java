@@ -0,0 +1,304 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindBatchScorer.java
+ *
+ *         Purpose: An optional pipeline stage that scores guesses from many
+ *         sessions together. Callers submit a packed guess and secret and get
+ *         a future; a single dispatcher thread gathers requests into a batch
+ *         until it holds maxBatchSize of them or maxDelayNanos have passed
+ *         since the first one arrived, scores the whole batch in one loop over
+ *         packed arrays, and then completes the futures.
+ *
+ *         The two limits are the trade-off: bigger batches and longer delays
+ *         mean better locality and fewer wake-ups per guess, at the cost of up
+ *         to maxDelayNanos added to each guess. Delays below SPIN_NANOS are
+ *         waited out by spinning, since a timed park cannot wake that
+ *         precisely. The achieved batch sizes and the time requests spend
+ *         waiting are kept so the limits can be tuned. While there is no
+ *         work the dispatcher blocks on the queue without a timeout, so an
+ *         idle scorer costs no wake-ups; close() queues a marker behind the
+ *         last request to wake it and make it stop.
+ *
+ *         Futures are completed on the dispatcher thread, so anything chained
+ *         on them without an executor should be quick. As a MastermindScorer
+ *         it blocks until the scores come back, submitting all the secrets of
+ *         a scoreAll() or filter() before waiting so they share batches.
+ *
+ */
+public class MastermindBatchScorer implements MastermindScorer, AutoCloseable {
+
+	public static final long SPIN_NANOS = 50000;
+
+	private static final Request CLOSE = new Request(0, 0);
+
+	private final MastermindCodeSpace space;
+	private final int maxBatchSize;
+	private final long maxDelayNanos;
+	private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<Request>();
+	private final AtomicLongArray batchSizes;
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder scored = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	private final Thread dispatcher;
+	private volatile boolean closed;
+
+	/**
+	 * Constructor for MastermindBatchScorer. Starts the dispatcher thread.
+	 *
+	 * @param space         the board geometry.
+	 * @param maxBatchSize  the most requests scored in one batch.
+	 * @param maxDelayNanos the longest a batch waits to fill up after its
+	 *                      first request arrives; 0 scores whatever is
+	 *                      waiting at once.
+	 */
+	public MastermindBatchScorer(MastermindCodeSpace space, int maxBatchSize, long maxDelayNanos) {
+		if (maxBatchSize < 1 || maxDelayNanos < 0) {
+			throw new IllegalArgumentException("Batch size must be positive and delay not negative.");
+		}
+		this.space = space;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayNanos = maxDelayNanos;
+		this.batchSizes = new AtomicLongArray(maxBatchSize + 1);
+
+		dispatcher = new Thread(this::dispatch, "mastermind-batch-scorer");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+	}
+
+	/**
+	 * Queues a guess to be scored.
+	 *
+	 * @param guess  the packed guess.
+	 * @param secret the packed secret.
+	 * @return a future completed with the packed feedback, as from
+	 *         space.score().
+	 * @throws IllegalStateException if the scorer is closed.
+	 */
+	public CompletableFuture<Integer> submit(int guess, int secret) {
+		if (closed) {
+			throw new IllegalStateException("The batch scorer is closed.");
+		}
+		Request request = new Request(guess, secret);
+		queue.add(request);
+		// If close() drained the queue for the last time after the check
+		// above, nothing else will take this request; whoever removes it
+		// from the queue completes it.
+		if (closed && queue.remove(request)) {
+			request.future.complete(space.score(guess, secret));
+		}
+		return request.future;
+	}
+
+	@Override
+	public int score(int guess, int secret) {
+		return submit(guess, secret).join();
+	}
+
+	@Override
+	public void scoreAll(int guess, int[] secrets, int count, int[] results) {
+		List<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>(count);
+		for (int i = 0; i < count; i++) {
+			futures.add(submit(guess, secrets[i]));
+		}
+		for (int i = 0; i < count; i++) {
+			results[i] = futures.get(i).join();
+		}
+	}
+
+	@Override
+	public int filter(int guess, int feedback, int[] candidates, int count) {
+		int[] results = new int[count];
+		scoreAll(guess, candidates, count, results);
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			if (results[i] == feedback) {
+				candidates[kept++] = candidates[i];
+			}
+		}
+		return kept;
+	}
+
+	/**
+	 * Body of the dispatcher thread. Runs until it reaches the marker
+	 * close() queues, having scored every request queued before it.
+	 */
+	private void dispatch() {
+		ArrayList<Request> batch = new ArrayList<Request>(maxBatchSize);
+		int[] guesses = new int[maxBatchSize];
+		int[] secrets = new int[maxBatchSize];
+		int[] results = new int[maxBatchSize];
+		boolean stopping = false;
+		while (!stopping) {
+			try {
+				Request first = queue.take();
+				if (first == CLOSE) {
+					return;
+				}
+				batch.add(first);
+				fill(batch);
+			} catch (InterruptedException e) {
+				return;
+			}
+			// Everything queued before the marker is in this batch.
+			stopping = batch.remove(CLOSE);
+
+			int size = batch.size();
+			for (int i = 0; i < size; i++) {
+				Request request = batch.get(i);
+				guesses[i] = request.guess;
+				secrets[i] = request.secret;
+			}
+			long started = System.nanoTime();
+			for (int i = 0; i < size; i++) {
+				results[i] = space.score(guesses[i], secrets[i]);
+			}
+
+			long waited = 0;
+			for (int i = 0; i < size; i++) {
+				Request request = batch.get(i);
+				waited += started - request.submitted;
+				request.future.complete(results[i]);
+			}
+			batch.clear();
+			batchSizes.incrementAndGet(size);
+			batches.increment();
+			scored.add(size);
+			waitNanos.add(waited);
+		}
+	}
+
+	/**
+	 * Adds waiting requests to a batch until it is full or its delay is up.
+	 */
+	private void fill(ArrayList<Request> batch) throws InterruptedException {
+		long deadline = batch.get(0).submitted + maxDelayNanos;
+		while (batch.size() < maxBatchSize) {
+			queue.drainTo(batch, maxBatchSize - batch.size());
+			long remaining = deadline - System.nanoTime();
+			if (batch.size() == maxBatchSize || remaining <= 0 || closed) {
+				return;
+			}
+			if (remaining < SPIN_NANOS) {
+				Thread.onSpinWait();
+			} else {
+				Request next = queue.poll(remaining - SPIN_NANOS, TimeUnit.NANOSECONDS);
+				if (next != null) {
+					batch.add(next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the board geometry.
+	 */
+	public MastermindCodeSpace getSpace() {
+		return space;
+	}
+
+	/**
+	 * @return the most requests scored in one batch.
+	 */
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * @return the longest a batch waits to fill up, in nanoseconds.
+	 */
+	public long getMaxDelayNanos() {
+		return maxDelayNanos;
+	}
+
+	/**
+	 * @return the number of batches scored.
+	 */
+	public long getBatchCount() {
+		return batches.sum();
+	}
+
+	/**
+	 * @return the number of requests scored.
+	 */
+	public long getScoredCount() {
+		return scored.sum();
+	}
+
+	/**
+	 * @return the mean number of requests per batch.
+	 */
+	public double getMeanBatchSize() {
+		long count = batches.sum();
+		return count == 0 ? 0 : (double) scored.sum() / count;
+	}
+
+	/**
+	 * @return the mean time from submit() until the request's batch was
+	 *         scored, in nanoseconds.
+	 */
+	public double getMeanWaitNanos() {
+		long count = scored.sum();
+		return count == 0 ? 0 : (double) waitNanos.sum() / count;
+	}
+
+	/**
+	 * @return the number of batches of each size, indexed by size.
+	 */
+	public long[] getBatchSizeCounts() {
+		long[] counts = new long[batchSizes.length()];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = batchSizes.get(i);
+		}
+		return counts;
+	}
+
+	/**
+	 * Stops taking requests, scores everything already queued and stops the
+	 * dispatcher thread. A submit() that races with close() is still
+	 * scored.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		queue.add(CLOSE);
+		try {
+			dispatcher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		// Requests that slipped in as the dispatcher stopped
+		for (Request request = queue.poll(); request != null; request = queue.poll()) {
+			if (request != CLOSE) {
+				request.future.complete(space.score(request.guess, request.secret));
+			}
+		}
+	}
+
+	/**
+	 * A guess waiting to be scored.
+	 */
+	private static class Request {
+		private final int guess;
+		private final int secret;
+		private final long submitted = System.nanoTime();
+		private final CompletableFuture<Integer> future = new CompletableFuture<Integer>();
+
+		private Request(int guess, int secret) {
+			this.guess = guess;
+			this.secret = secret;
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+package solver;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindCandidateStrategy.java
+ *
+ *         Purpose: Base class for strategies that keep the set of candidate
+ *         secrets, i.e. the codes that are still consistent with every
+ *         feedback received so far. Subclasses only decide which code to
+ *         guess next. Candidates are always kept in ascending order. Once
+ *         inconsistent feedback has ruled out every code there is nothing
+ *         sensible to guess, so nextGuess() throws rather than replaying a
+ *         code that is no longer a candidate.
+ *
+ */
+public abstract class MastermindCandidateStrategy implements MastermindStrategy {
+
+	protected final MastermindCodeSpace space;
+	protected final MastermindScorer scorer;
+	protected int[] candidates;
+	protected int numCandidates;
+
+	/**
+	 * Constructor for MastermindCandidateStrategy.
+	 *
+	 * @param space  the board geometry to play on.
+	 * @param scorer scores codes of the space, e.g. the space itself or a
+	 *               MastermindFeedbackCache.
+	 */
+	protected MastermindCandidateStrategy(MastermindCodeSpace space, MastermindScorer scorer) {
+		this.space = space;
+		this.scorer = scorer;
+	}
+
+	@Override
+	public void newGame() {
+		if (candidates == null) {
+			candidates = new int[space.size()];
+		}
+		for (int i = 0; i < candidates.length; i++) {
+			candidates[i] = i;
+		}
+		numCandidates = candidates.length;
+	}
+
+	@Override
+	public String nextGuess() {
+		if (numCandidates == 0) {
+			throw new IllegalStateException("No code fits the feedback so far.");
+		}
+		return space.toString(chooseGuess());
+	}
+
+	/**
+	 * Picks the next code to guess. Only called while there is at least one
+	 * candidate.
+	 *
+	 * @return the code to guess.
+	 */
+	protected abstract int chooseGuess();
+
+	/**
+	 * Removes every candidate that would not have produced this feedback.
+	 */
+	@Override
+	public void feedback(String guess, int rightColorRightPlace, int rightColorWrongPlace) {
+		int code = space.fromString(guess);
+		int feedback = space.feedback(rightColorRightPlace, rightColorWrongPlace);
+		numCandidates = scorer.filter(code, feedback, candidates, numCandidates);
+	}
+
+	/**
+	 * @return the number of codes still consistent with the feedback.
+	 */
+	public int getNumCandidates() {
+		return numCandidates;
+	}
+
+}
@@ -0,0 +1,227 @@
+package solver;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindCodeSpace.java
+ *
+ *         Purpose: Describes a board geometry (number of pegs and number of
+ *         colors) and numbers every possible code from 0 to size() - 1 so
+ *         solvers can work with ints instead of Strings. The first peg is the
+ *         most significant digit, so code order matches String order. Color
+ *         i is written as COLOR_CHARS.charAt(i); the classic board uses the
+ *         same six letters as the game (r, o, y, g, b, p).
+ *
+ *         Feedback is packed into a single int: black * (pegs + 1) + white,
+ *         where black is right color right place and white is right color
+ *         wrong place.
+ *
+ */
+public class MastermindCodeSpace implements MastermindScorer {
+
+	public static final String COLOR_CHARS = "roygbpcwkmnt";
+	public static final MastermindCodeSpace CLASSIC = new MastermindCodeSpace(4, 6);
+
+	private final int pegs;
+	private final int colors;
+	private final int size;
+	private final int[] placeValues;
+
+	/**
+	 * Constructor for MastermindCodeSpace.
+	 *
+	 * @param pegs   the number of pegs in a code, between 1 and 8.
+	 * @param colors the number of colors, between 1 and COLOR_CHARS.length().
+	 * @throws IllegalArgumentException if either argument is out of range.
+	 */
+	public MastermindCodeSpace(int pegs, int colors) {
+		if (pegs < 1 || pegs > 8) {
+			throw new IllegalArgumentException("Pegs is " + pegs + "; should be between 1 and 8.");
+		}
+		if (colors < 1 || colors > COLOR_CHARS.length()) {
+			throw new IllegalArgumentException(
+					"Colors is " + colors + "; should be between 1 and " + COLOR_CHARS.length() + ".");
+		}
+		this.pegs = pegs;
+		this.colors = colors;
+		this.placeValues = new int[pegs];
+		long value = 1;
+		for (int i = pegs - 1; i >= 0; i--) {
+			placeValues[i] = (int) value;
+			value *= colors;
+		}
+		if (value > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(colors + "^" + pegs + " codes do not fit in an int.");
+		}
+		this.size = (int) value;
+	}
+
+	/**
+	 * @return the number of pegs in a code.
+	 */
+	public int getPegs() {
+		return pegs;
+	}
+
+	/**
+	 * @return the number of colors.
+	 */
+	public int getColors() {
+		return colors;
+	}
+
+	/**
+	 * @return the number of possible codes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of distinct packed feedback values, (pegs + 1)^2.
+	 */
+	public int getFeedbackCount() {
+		return (pegs + 1) * (pegs + 1);
+	}
+
+	/**
+	 * Packs a black and white count into a single feedback int.
+	 *
+	 * @param black number of right color right place.
+	 * @param white number of right color wrong place.
+	 * @return the packed feedback.
+	 */
+	public int feedback(int black, int white) {
+		return black * (pegs + 1) + white;
+	}
+
+	/**
+	 * @param feedback a packed feedback.
+	 * @return the number of right color right place.
+	 */
+	public int getBlack(int feedback) {
+		return feedback / (pegs + 1);
+	}
+
+	/**
+	 * @param feedback a packed feedback.
+	 * @return the number of right color wrong place.
+	 */
+	public int getWhite(int feedback) {
+		return feedback % (pegs + 1);
+	}
+
+	/**
+	 * @return the packed feedback of a correct guess.
+	 */
+	public int getWinningFeedback() {
+		return feedback(pegs, 0);
+	}
+
+	/**
+	 * Returns the color at the position index of a code.
+	 *
+	 * @param code  the code.
+	 * @param index the position, 0 being the leftmost peg.
+	 * @return the color as an int between 0 and colors - 1.
+	 */
+	public int colorAt(int code, int index) {
+		return (code / placeValues[index]) % colors;
+	}
+
+	/**
+	 * Returns the code with the color at position index replaced.
+	 *
+	 * @param code  the code.
+	 * @param index the position, 0 being the leftmost peg.
+	 * @param color the new color.
+	 * @return the new code.
+	 */
+	public int withColorAt(int code, int index, int color) {
+		return code + (color - colorAt(code, index)) * placeValues[index];
+	}
+
+	/**
+	 * Converts a code to its String form, e.g. 0 is "rrrr" on the classic
+	 * board.
+	 *
+	 * @param code the code.
+	 * @return the code as a String of color characters.
+	 */
+	public String toString(int code) {
+		char[] chars = new char[pegs];
+		for (int i = pegs - 1; i >= 0; i--) {
+			chars[i] = COLOR_CHARS.charAt(code % colors);
+			code /= colors;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Converts a String of color characters to its code.
+	 *
+	 * @param guess the String to convert.
+	 * @return the code.
+	 * @throws IllegalArgumentException if the length or a color is not valid.
+	 */
+	public int fromString(String guess) {
+		if (guess.length() != pegs) {
+			throw new IllegalArgumentException("Code is length " + guess.length() + "; should be length " + pegs + ".");
+		}
+		int code = 0;
+		for (int i = 0; i < pegs; i++) {
+			int color = COLOR_CHARS.indexOf(guess.charAt(i));
+			if (color < 0 || color >= colors) {
+				throw new IllegalArgumentException("Color '" + guess.charAt(i) + "' is not valid.");
+			}
+			code = code * colors + color;
+		}
+		return code;
+	}
+
+	/**
+	 * Scores a guess against a secret.
+	 *
+	 * Counts exact matches while peeling digits off both codes, and keeps a
+	 * 4-bit count per color for the pegs that did not match (packed into a
+	 * long, so nothing is allocated). The number of right color wrong place is
+	 * the sum over colors of the smaller of the two counts.
+	 *
+	 * @param guess  the guessed code.
+	 * @param secret the secret code.
+	 * @return the packed feedback.
+	 */
+	@Override
+	public int score(int guess, int secret) {
+		int black = 0;
+		long guessCounts = 0;
+		long secretCounts = 0;
+		for (int i = 0; i < pegs; i++) {
+			int a = guess % colors;
+			int b = secret % colors;
+			guess /= colors;
+			secret /= colors;
+			if (a == b) {
+				black++;
+			} else {
+				guessCounts += 1L << (a << 2);
+				secretCounts += 1L << (b << 2);
+			}
+		}
+		int white = 0;
+		if (guessCounts != 0) {
+			for (int c = 0; c < colors; c++) {
+				int shift = c << 2;
+				white += Math.min((int) (guessCounts >>> shift) & 15, (int) (secretCounts >>> shift) & 15);
+			}
+		}
+		return black * (pegs + 1) + white;
+	}
+
+	@Override
+	public String toString() {
+		return pegs + "x" + colors;
+	}
+
+}
@@ -0,0 +1,59 @@
+package solver;
+
+import java.util.Random;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindConsistentStrategy.java
+ *
+ *         Purpose: The simplest sensible strategy: always guess a code that
+ *         is still consistent with every feedback so far. Without a Random it
+ *         guesses the lowest such code; with one it picks a random one.
+ *
+ */
+public class MastermindConsistentStrategy extends MastermindCandidateStrategy {
+
+	private final Random random;
+
+	/**
+	 * Constructor for MastermindConsistentStrategy that always guesses the
+	 * lowest consistent code.
+	 *
+	 * @param space the board geometry to play on.
+	 */
+	public MastermindConsistentStrategy(MastermindCodeSpace space) {
+		this(space, space, null);
+	}
+
+	/**
+	 * Constructor for MastermindConsistentStrategy.
+	 *
+	 * @param space  the board geometry to play on.
+	 * @param scorer scores codes of the space.
+	 * @param random used to pick among consistent codes, or null to always
+	 *               pick the lowest.
+	 */
+	public MastermindConsistentStrategy(MastermindCodeSpace space, MastermindScorer scorer, Random random) {
+		super(space, scorer);
+		this.random = random;
+	}
+
+	@Override
+	public void newGame(long seed) {
+		if (random != null) {
+			random.setSeed(seed);
+		}
+		newGame();
+	}
+
+	@Override
+	protected int chooseGuess() {
+		if (random == null) {
+			return candidates[0];
+		}
+		return candidates[random.nextInt(numCandidates)];
+	}
+
+}
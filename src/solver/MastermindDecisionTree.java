@@ -0,0 +1,150 @@
+package solver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindDecisionTree.java
+ *
+ *         Purpose: A complete playing strategy stored as a tree: each node
+ *         holds the code to guess, and its children are indexed by the packed
+ *         feedback that guess can receive. Node 0 is the first guess. Playing
+ *         a move is two array lookups, see MastermindDecisionTreeStrategy.
+ *
+ *         Trees are saved as: int MAGIC, int pegs, int colors, int nodes,
+ *         int[nodes] guesses, int[nodes * feedback count] children (-1 for
+ *         none).
+ *
+ */
+public class MastermindDecisionTree {
+
+	private static final int MAGIC = 0x4D4D4454;
+
+	private final MastermindCodeSpace space;
+	private final int[] guesses;
+	private final int[] children;
+
+	/**
+	 * Constructor for MastermindDecisionTree.
+	 *
+	 * @param space    the board geometry.
+	 * @param guesses  the code to guess at each node.
+	 * @param children the child of each node for each feedback, at
+	 *                 node * space.getFeedbackCount() + feedback, or -1.
+	 */
+	public MastermindDecisionTree(MastermindCodeSpace space, int[] guesses, int[] children) {
+		this.space = space;
+		this.guesses = guesses;
+		this.children = children;
+	}
+
+	/**
+	 * @return the board geometry.
+	 */
+	public MastermindCodeSpace getSpace() {
+		return space;
+	}
+
+	/**
+	 * @return the number of nodes.
+	 */
+	public int getNodeCount() {
+		return guesses.length;
+	}
+
+	/**
+	 * @param node a node.
+	 * @return the code to guess at the node.
+	 */
+	public int getGuess(int node) {
+		return guesses[node];
+	}
+
+	/**
+	 * @param node     a node.
+	 * @param feedback the packed feedback the node's guess received.
+	 * @return the next node, or -1 if the tree has none (the game is won, or
+	 *         the feedback is impossible).
+	 */
+	public int getChild(int node, int feedback) {
+		return children[node * space.getFeedbackCount() + feedback];
+	}
+
+	/**
+	 * Plays the tree against every secret and adds up the guesses used.
+	 *
+	 * @return the total number of guesses over all secrets, or -1 if the tree
+	 *         fails to solve one of them.
+	 */
+	public long getTotalGuesses() {
+		long total = 0;
+		for (int secret = 0; secret < space.size(); secret++) {
+			int node = 0;
+			int used = 1;
+			while (space.score(guesses[node], secret) != space.getWinningFeedback()) {
+				node = getChild(node, space.score(guesses[node], secret));
+				if (node < 0) {
+					return -1;
+				}
+				used++;
+			}
+			total += used;
+		}
+		return total;
+	}
+
+	/**
+	 * Saves the tree.
+	 *
+	 * @param file the file to write.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void write(Path file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(space.getPegs());
+			out.writeInt(space.getColors());
+			out.writeInt(guesses.length);
+			for (int guess : guesses) {
+				out.writeInt(guess);
+			}
+			for (int child : children) {
+				out.writeInt(child);
+			}
+		}
+	}
+
+	/**
+	 * Loads a tree saved by write().
+	 *
+	 * @param file the file to read.
+	 * @return the tree.
+	 * @throws IOException if the file cannot be read or is not a tree.
+	 */
+	public static MastermindDecisionTree read(Path file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a decision tree.");
+			}
+			MastermindCodeSpace space = new MastermindCodeSpace(in.readInt(), in.readInt());
+			int[] guesses = new int[in.readInt()];
+			for (int i = 0; i < guesses.length; i++) {
+				guesses[i] = in.readInt();
+			}
+			int[] children = new int[guesses.length * space.getFeedbackCount()];
+			for (int i = 0; i < children.length; i++) {
+				children[i] = in.readInt();
+			}
+			return new MastermindDecisionTree(space, guesses, children);
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package solver;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindDecisionTreeStrategy.java
+ *
+ *         Purpose: Plays a precomputed MastermindDecisionTree, e.g. one made
+ *         by MastermindOptimalSolver. Every move is a constant-time lookup.
+ *         The tree is read-only, so one tree can back any number of these.
+ *
+ */
+public class MastermindDecisionTreeStrategy implements MastermindStrategy {
+
+	private final MastermindDecisionTree tree;
+	private int node;
+
+	/**
+	 * Constructor for MastermindDecisionTreeStrategy.
+	 *
+	 * @param tree the tree to play.
+	 */
+	public MastermindDecisionTreeStrategy(MastermindDecisionTree tree) {
+		this.tree = tree;
+	}
+
+	@Override
+	public void newGame() {
+		node = 0;
+	}
+
+	@Override
+	public String nextGuess() {
+		return tree.getSpace().toString(tree.getGuess(node));
+	}
+
+	/**
+	 * Follows the tree to the node for this feedback.
+	 *
+	 * @throws IllegalStateException if the tree has no move for the feedback,
+	 *                               which means it cannot be right.
+	 */
+	@Override
+	public void feedback(String guess, int rightColorRightPlace, int rightColorWrongPlace) {
+		int next = tree.getChild(node, tree.getSpace().feedback(rightColorRightPlace, rightColorWrongPlace));
+		if (next < 0) {
+			throw new IllegalStateException("No move for " + rightColorRightPlace + " right place, "
+					+ rightColorWrongPlace + " wrong place after " + guess + ".");
+		}
+		node = next;
+	}
+
+}
@@ -0,0 +1,337 @@
+package solver;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindFeedbackCache.java
+ *
+ *         Purpose: A feedback lookup table for boards too big to tabulate in
+ *         full (6 pegs and 9 colors already has 531,441 codes). The table is
+ *         cut into tiles of tileRows guesses by tileColumns secrets, and a
+ *         tile is only worked out the first time a score inside it is needed.
+ *
+ *         Working out a tile costs a score per cell, so the cache only pays
+ *         off when the cells are read again before the tile is evicted. The
+ *         defaults are tiles one guess high: a filter() works out just the
+ *         row it reads, and the same guess in a later game (the opening, or a
+ *         common reply to it) finds the row already there. A scan that scores
+ *         every guess against the candidates once, like minimax's search,
+ *         reads each cell once and should score through the code space
+ *         instead.
+ *
+ *         Tiles are kept off the heap in direct ByteBuffers, one byte per
+ *         score, and are held in a set-associative table like a CPU cache: a
+ *         tile can only go in one of WAYS places, chosen by its position.
+ *         Once the memory cap is reached, a new tile replaces one of those
+ *         that has not been used since the set was last swept (the CLOCK
+ *         approximation of least recently used), and reuses its buffer, so
+ *         after warming up the cache allocates nothing and gives the garbage
+ *         collector nothing to do.
+ *
+ *         The cache is thread-safe and meant to be shared, e.g. by every bot
+ *         on a board. Reads take no lock: each tile carries a version that is
+ *         odd while it is being refilled, and a reader checks the version is
+ *         even and unchanged around its read, trying again if not (a
+ *         seqlock). Only working out a missing tile takes the lock, and no
+ *         statistics are kept on the read path. Prefer filter() to many
+ *         score() calls: it finds each tile once and walks it in one go.
+ *
+ */
+public class MastermindFeedbackCache implements MastermindScorer {
+
+	public static final int WAYS = 4;
+	public static final int DEFAULT_TILE_ROWS = 1;
+	public static final int DEFAULT_TILE_COLUMNS = 4096;
+	public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+	private final MastermindCodeSpace space;
+	private final int tileRows;
+	private final int tileColumns;
+	private final int tileBytes;
+	private final long tilesPerRow;
+	private final int ways;
+	private final int sets;
+	private final AtomicReferenceArray<Tile> tiles;
+	private final int[] hands;
+	private int tileCount;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Constructor for MastermindFeedbackCache with the default tile shape and
+	 * memory cap.
+	 *
+	 * @param space the board geometry to score.
+	 */
+	public MastermindFeedbackCache(MastermindCodeSpace space) {
+		this(space, DEFAULT_TILE_ROWS, DEFAULT_TILE_COLUMNS, DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Constructor for MastermindFeedbackCache with square tiles.
+	 *
+	 * @param space    the board geometry to score.
+	 * @param tileSize the number of guesses (and secrets) along each side of a
+	 *                 tile.
+	 * @param maxBytes the most off-heap memory the tiles may use; at least one
+	 *                 tile is always kept.
+	 */
+	public MastermindFeedbackCache(MastermindCodeSpace space, int tileSize, long maxBytes) {
+		this(space, tileSize, tileSize, maxBytes);
+	}
+
+	/**
+	 * Constructor for MastermindFeedbackCache.
+	 *
+	 * @param space       the board geometry to score.
+	 * @param tileRows    the number of guesses in a tile.
+	 * @param tileColumns the number of secrets in a tile.
+	 * @param maxBytes    the most off-heap memory the tiles may use; at least
+	 *                    one tile is always kept.
+	 */
+	public MastermindFeedbackCache(MastermindCodeSpace space, int tileRows, int tileColumns, long maxBytes) {
+		if (tileRows < 1 || tileColumns < 1 || (long) tileRows * tileColumns > 1 << 30) {
+			throw new IllegalArgumentException("Tiles must have at least one cell and at most 2^30.");
+		}
+		this.space = space;
+		this.tileRows = Math.min(tileRows, space.size());
+		this.tileColumns = Math.min(tileColumns, space.size());
+		this.tileBytes = this.tileRows * this.tileColumns;
+		this.tilesPerRow = (space.size() + this.tileColumns - 1) / this.tileColumns;
+		long boardTiles = (space.size() + this.tileRows - 1) / this.tileRows * tilesPerRow;
+		int maxTiles = (int) Math.max(1, Math.min(Math.min(1 << 30, boardTiles), maxBytes / tileBytes));
+		this.ways = Math.min(WAYS, maxTiles);
+		this.sets = maxTiles / ways;
+		this.tiles = new AtomicReferenceArray<Tile>(sets * ways);
+		this.hands = new int[sets];
+	}
+
+	@Override
+	public int score(int guess, int secret) {
+		long key = keyOf(guess, secret);
+		int cell = (guess % tileRows) * tileColumns + secret % tileColumns;
+		while (true) {
+			Tile tile = tileFor(key, guess, secret);
+			int version = tile.version;
+			if ((version & 1) == 0 && tile.key == key) {
+				byte score = tile.buffer.get(cell);
+				VarHandle.loadLoadFence();
+				if (tile.version == version) {
+					return score;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Keeps only the candidates that the guess scores the given feedback
+	 * against. Consecutive candidates in the same tile are read from it
+	 * without looking the tile up again, so this is fastest when the
+	 * candidates are sorted.
+	 */
+	@Override
+	public int filter(int guess, int feedback, int[] candidates, int count) {
+		int row = (guess % tileRows) * tileColumns;
+		long[] matches = new long[(tileColumns + 63) >>> 6];
+		int kept = 0;
+		int i = 0;
+		while (i < count) {
+			int block = candidates[i] / tileColumns;
+			int blockStart = block * tileColumns;
+			int end = i + 1;
+			while (end < count && end - i < tileColumns && candidates[end] / tileColumns == block) {
+				end++;
+			}
+
+			// Note the matches first and only move candidates once the tile
+			// is known not to have been refilled under us.
+			long key = keyOf(guess, candidates[i]);
+			while (true) {
+				Tile tile = tileFor(key, guess, candidates[i]);
+				int version = tile.version;
+				if ((version & 1) != 0 || tile.key != key) {
+					continue;
+				}
+				for (int j = i; j < end; j++) {
+					if (tile.buffer.get(row + candidates[j] - blockStart) == feedback) {
+						matches[(j - i) >>> 6] |= 1L << (j - i);
+					}
+				}
+				VarHandle.loadLoadFence();
+				if (tile.version == version) {
+					break;
+				}
+				clear(matches, end - i);
+			}
+			for (int j = i; j < end; j++) {
+				if ((matches[(j - i) >>> 6] & 1L << (j - i)) != 0) {
+					candidates[kept++] = candidates[j];
+				}
+			}
+			clear(matches, end - i);
+			i = end;
+		}
+		return kept;
+	}
+
+	/**
+	 * Clears the first bits of a bit set.
+	 */
+	private static void clear(long[] bits, int count) {
+		for (int word = 0; word < (count + 63) >>> 6; word++) {
+			bits[word] = 0;
+		}
+	}
+
+	/**
+	 * Returns the key of the tile holding the score of guess against secret.
+	 */
+	private long keyOf(int guess, int secret) {
+		return (guess / tileRows) * tilesPerRow + secret / tileColumns;
+	}
+
+	/**
+	 * Returns the tile for a key without taking the lock if it is already
+	 * held, or works it out otherwise; a tile being refilled for the key is
+	 * waited for on the lock rather than spun on. The caller must still check
+	 * the tile's version and key around its read, since it may be refilled at
+	 * any time.
+	 */
+	private Tile tileFor(long key, int guess, int secret) {
+		int first = (int) (key % sets) * ways;
+		for (int way = 0; way < ways; way++) {
+			Tile tile = tiles.get(first + way);
+			if (tile != null && tile.key == key && (tile.version & 1) == 0) {
+				if (!tile.used) {
+					tile.used = true;
+				}
+				return tile;
+			}
+		}
+		return load(key, guess, secret);
+	}
+
+	/**
+	 * Works out a missing tile, in an empty way of its set if there is one
+	 * or else in place of the first tile the set's clock hand finds unused
+	 * since it last came round.
+	 */
+	private synchronized Tile load(long key, int guess, int secret) {
+		int set = (int) (key % sets);
+		int first = set * ways;
+		int empty = -1;
+		for (int way = 0; way < ways; way++) {
+			Tile tile = tiles.get(first + way);
+			if (tile == null) {
+				empty = empty < 0 ? way : empty;
+			} else if (tile.key == key) {
+				// Another thread worked it out while we waited for the lock.
+				return tile;
+			}
+		}
+		misses++;
+		int firstGuess = guess / tileRows * tileRows;
+		int firstSecret = secret / tileColumns * tileColumns;
+		if (empty >= 0) {
+			Tile tile = new Tile(ByteBuffer.allocateDirect(tileBytes), key);
+			fill(tile.buffer, firstGuess, firstSecret);
+			tiles.set(first + empty, tile);
+			tileCount++;
+			return tile;
+		}
+
+		Tile victim;
+		int hand = hands[set];
+		while (true) {
+			Tile tile = tiles.get(first + hand);
+			hand = (hand + 1) % ways;
+			if (!tile.used) {
+				victim = tile;
+				break;
+			}
+			tile.used = false;
+		}
+		hands[set] = hand;
+		evictions++;
+
+		victim.version = victim.version + 1;
+		VarHandle.storeStoreFence();
+		victim.key = key;
+		fill(victim.buffer, firstGuess, firstSecret);
+		victim.used = true;
+		victim.version = victim.version + 1;
+		return victim;
+	}
+
+	/**
+	 * Scores every guess in the tile against every secret in the tile. Cells
+	 * past the end of the code space are left as they are.
+	 */
+	private void fill(ByteBuffer tile, int firstGuess, int firstSecret) {
+		int lastGuess = Math.min(firstGuess + tileRows, space.size());
+		int lastSecret = Math.min(firstSecret + tileColumns, space.size());
+		for (int guess = firstGuess; guess < lastGuess; guess++) {
+			int row = (guess - firstGuess) * tileColumns;
+			for (int secret = firstSecret; secret < lastSecret; secret++) {
+				tile.put(row + secret - firstSecret, (byte) space.score(guess, secret));
+			}
+		}
+	}
+
+	/**
+	 * @return the board geometry this cache scores.
+	 */
+	public MastermindCodeSpace getSpace() {
+		return space;
+	}
+
+	/**
+	 * @return the number of tiles currently held.
+	 */
+	public synchronized int getTileCount() {
+		return tileCount;
+	}
+
+	/**
+	 * @return the off-heap memory currently used by tiles, in bytes.
+	 */
+	public synchronized long getBytesUsed() {
+		return (long) tileCount * tileBytes;
+	}
+
+	/**
+	 * @return the number of tiles worked out.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of tiles evicted to stay under the memory cap.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * A tile and the bookkeeping that lets it be read without a lock. The
+	 * version is odd while the tile is being refilled for a new key.
+	 */
+	private static class Tile {
+		private final ByteBuffer buffer;
+		private volatile long key;
+		private volatile int version;
+		private boolean used = true;
+
+		private Tile(ByteBuffer buffer, long key) {
+			this.buffer = buffer;
+			this.key = key;
+		}
+	}
+
+}
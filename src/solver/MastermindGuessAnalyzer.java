@@ -0,0 +1,341 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindGuessAnalyzer.java
+ *
+ *         Purpose: Rates a player's guesses as they are made, for coaching
+ *         and to spot play that is too good to be true. See
+ *         MastermindGuessRating for what is rated.
+ *
+ *         The analyzer follows the game the way a MastermindCandidateStrategy
+ *         does: it keeps the codes that agree with all feedback so far, in
+ *         order, and filters them in place after each guess, so every move
+ *         starts from the previous move's candidates instead of the whole
+ *         board. Rating a guess is then one pass over the candidates plus a
+ *         binary search to see if the guess was one of them.
+ *
+ *         The expensive part, finding the best guess for the new candidates,
+ *         runs in the background as soon as the feedback is in, while the
+ *         player is thinking. rate() never waits for it: if the next guess
+ *         comes first, the rating is returned straight away and compared with
+ *         the best guess when the search is done (see
+ *         MastermindGuessRating.whenCompared()).
+ *
+ *         The best guess depends only on the board and the candidates, so
+ *         each set of candidates is searched once and the result shared by
+ *         every analyzer. The opening and the common replies to it are worked
+ *         out once per process. At most MAX_SEARCHES results are kept, and
+ *         the one used least recently makes way for a new one, so the
+ *         positions that keep coming up stay cached however long the process
+ *         runs.
+ *
+ *         A search that fails (or that the executor will not take) is not
+ *         kept. The ratings waiting on it are left uncompared, with
+ *         whenCompared() completed exceptionally, and summarize() sums up
+ *         whatever could be rated, so nothing waits on it forever.
+ *
+ *         On boards too big to try every code against every candidate, the
+ *         best guess is looked for among a spread of the candidates only.
+ *
+ */
+public class MastermindGuessAnalyzer {
+
+	public static final int MAX_SEARCHES = 4096;
+
+	private static final long MAX_BEST_WORK = 1L << 22;
+	private static final LinkedHashMap<Candidates, CompletableFuture<Best>> searches =
+			new LinkedHashMap<Candidates, CompletableFuture<Best>>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Candidates, CompletableFuture<Best>> eldest) {
+					return size() > MAX_SEARCHES;
+				}
+			};
+
+	private final MastermindCodeSpace space;
+	private final Executor executor;
+	private final int[] candidates;
+	private final int[] counts;
+	private final ArrayList<MastermindGuessRating> ratings = new ArrayList<MastermindGuessRating>();
+	private int numCandidates;
+	private CompletableFuture<Best> best;
+
+	/**
+	 * Constructor for MastermindGuessAnalyzer that finds best guesses on the
+	 * common ForkJoinPool. Call newGame() before the first guess.
+	 *
+	 * @param space the board geometry.
+	 */
+	public MastermindGuessAnalyzer(MastermindCodeSpace space) {
+		this(space, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor for MastermindGuessAnalyzer. Call newGame() before the first
+	 * guess.
+	 *
+	 * @param space    the board geometry.
+	 * @param executor where best guesses are looked for.
+	 */
+	public MastermindGuessAnalyzer(MastermindCodeSpace space, Executor executor) {
+		this.space = space;
+		this.executor = executor;
+		this.candidates = new int[space.size()];
+		this.counts = new int[space.getFeedbackCount()];
+	}
+
+	/**
+	 * Starts rating a new game.
+	 */
+	public void newGame() {
+		for (int i = 0; i < candidates.length; i++) {
+			candidates[i] = i;
+		}
+		numCandidates = candidates.length;
+		ratings.clear();
+		best = search(candidates.clone());
+	}
+
+	/**
+	 * Rates a guess and narrows the candidates down by its feedback. The
+	 * rating is compared with the best guess as soon as that is known, which
+	 * may be after this returns.
+	 *
+	 * @param guess                the guess.
+	 * @param rightColorRightPlace the number of right colors in the right
+	 *                             place.
+	 * @param rightColorWrongPlace the number of right colors in the wrong
+	 *                             place.
+	 * @return the rating.
+	 * @throws IllegalArgumentException if the guess is not a code on this board.
+	 */
+	public MastermindGuessRating rate(String guess, int rightColorRightPlace, int rightColorWrongPlace) {
+		int code = space.fromString(guess);
+
+		int before = numCandidates;
+		boolean consistent = Arrays.binarySearch(candidates, 0, before, code) >= 0;
+		double expectedRemaining = expectedRemaining(code, candidates, before);
+		numCandidates = space.filter(code, space.feedback(rightColorRightPlace, rightColorWrongPlace), candidates,
+				before);
+
+		MastermindGuessRating rating = new MastermindGuessRating(guess, ratings.size() + 1, consistent, before,
+				numCandidates, expectedRemaining);
+		ratings.add(rating);
+		best.whenComplete((available, failure) -> {
+			if (failure == null) {
+				rating.compare(available.expectedRemaining, space.toString(available.code));
+			} else {
+				rating.compareFailed(failure);
+			}
+		});
+
+		// The search gets its own copy, so a new game can start before it ends.
+		best = numCandidates == 0 ? CompletableFuture.completedFuture(new Best(code, 0))
+				: search(Arrays.copyOf(candidates, numCandidates));
+		return rating;
+	}
+
+	/**
+	 * Returns the search for the best guess among some candidates, starting
+	 * it on the executor unless the same candidates have been searched
+	 * before. A single candidate is its own best guess.
+	 */
+	private CompletableFuture<Best> search(int[] codes) {
+		if (codes.length == 1) {
+			return CompletableFuture.completedFuture(new Best(codes[0], 0));
+		}
+		Candidates key = new Candidates(space, codes);
+		CompletableFuture<Best> found = new CompletableFuture<Best>();
+		synchronized (searches) {
+			CompletableFuture<Best> cached = searches.putIfAbsent(key, found);
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		// Started outside the lock, since an executor may run it right away.
+		try {
+			executor.execute(() -> {
+				try {
+					found.complete(findBest(codes, codes.length));
+				} catch (RuntimeException | Error e) {
+					found.completeExceptionally(e);
+				}
+			});
+		} catch (RuntimeException e) {
+			found.completeExceptionally(e);
+		}
+		found.whenComplete((result, failure) -> {
+			if (failure != null) {
+				synchronized (searches) {
+					searches.remove(key, found);
+				}
+			}
+		});
+		return found;
+	}
+
+	/**
+	 * Returns the number of candidates a guess leaves on average, over every
+	 * candidate being the answer. A guess that wins leaves none.
+	 */
+	private double expectedRemaining(int guess, int[] codes, int count) {
+		if (count == 0) {
+			return 0;
+		}
+		Arrays.fill(counts, 0);
+		for (int i = 0; i < count; i++) {
+			counts[space.score(guess, codes[i])]++;
+		}
+		return sumOfSquares(counts) / (double) count;
+	}
+
+	private long sumOfSquares(int[] classCounts) {
+		long sum = 0;
+		for (int feedback = 0; feedback < classCounts.length; feedback++) {
+			if (feedback != space.getWinningFeedback()) {
+				sum += (long) classCounts[feedback] * classCounts[feedback];
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Finds the guess that leaves the fewest candidates on average, preferring
+	 * candidates and then lower codes on ties. Runs on the executor, so it
+	 * keeps its own counts and works on its own copy of the codes.
+	 */
+	private Best findBest(int[] codes, int count) {
+		int[] classCounts = new int[space.getFeedbackCount()];
+		long bestSum = Long.MAX_VALUE;
+		int bestCode = codes[0];
+		boolean bestIsCandidate = true;
+
+		boolean everyCode = (long) space.size() * count <= MAX_BEST_WORK;
+		int tries = everyCode ? space.size() : (int) Math.max(1, Math.min(count, MAX_BEST_WORK / count));
+		for (int i = 0; i < tries; i++) {
+			int guess = everyCode ? i : codes[(int) ((long) i * count / tries)];
+			Arrays.fill(classCounts, 0);
+			for (int j = 0; j < count; j++) {
+				classCounts[space.score(guess, codes[j])]++;
+			}
+			long sum = sumOfSquares(classCounts);
+			boolean candidate = classCounts[space.getWinningFeedback()] > 0;
+			if (sum < bestSum || sum == bestSum && candidate && !bestIsCandidate) {
+				bestSum = sum;
+				bestCode = guess;
+				bestIsCandidate = candidate;
+			}
+		}
+		return new Best(bestCode, bestSum / (double) count);
+	}
+
+	/**
+	 * @return the number of codes that agree with all feedback so far.
+	 */
+	public int getNumCandidates() {
+		return numCandidates;
+	}
+
+	/**
+	 * @return the ratings of this game's guesses, oldest first.
+	 */
+	public List<MastermindGuessRating> getRatings() {
+		return Collections.unmodifiableList(ratings);
+	}
+
+	/**
+	 * Sums up the game's ratings in a sentence, once every rating has been
+	 * compared with the best guess or its search has failed. Ratings that
+	 * could not be compared are left out of the efficiency.
+	 *
+	 * @return a future completed with the summary; it never completes
+	 *         exceptionally.
+	 */
+	public CompletableFuture<String> summarize() {
+		MastermindGuessRating[] rated = ratings.toArray(new MastermindGuessRating[0]);
+		CompletableFuture<?>[] settled = new CompletableFuture<?>[rated.length];
+		for (int i = 0; i < rated.length; i++) {
+			settled[i] = rated[i].whenCompared().handle((rating, failure) -> null);
+		}
+		return CompletableFuture.allOf(settled).thenApply(done -> {
+			int consistent = 0;
+			int compared = 0;
+			double efficiency = 0;
+			for (MastermindGuessRating rating : rated) {
+				consistent += rating.isConsistent() ? 1 : 0;
+				if (rating.isCompared()) {
+					compared++;
+					efficiency += rating.getEfficiency();
+				}
+			}
+			String fit = String.format("%d of %d guesses fit the earlier feedback", consistent, rated.length);
+			if (compared == rated.length) {
+				return String.format("%s; on average they ruled out %.0f%% as much as the best guess could.", fit,
+						rated.length == 0 ? 100 : efficiency * 100 / rated.length);
+			}
+			if (compared == 0) {
+				return fit + "; the best guesses could not be worked out.";
+			}
+			return String.format("%s; on average the %d that could be rated ruled out %.0f%% as much as the best "
+					+ "guess could.", fit, compared, efficiency * 100 / compared);
+		});
+	}
+
+	/**
+	 * A set of candidates on a board, as the key of a search.
+	 */
+	private static class Candidates {
+		private final String board;
+		private final int[] codes;
+		private final int hash;
+
+		private Candidates(MastermindCodeSpace space, int[] codes) {
+			this.board = space.toString();
+			this.codes = codes;
+			this.hash = board.hashCode() * 31 + Arrays.hashCode(codes);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Candidates)) {
+				return false;
+			}
+			Candidates that = (Candidates) other;
+			return hash == that.hash && board.equals(that.board) && Arrays.equals(codes, that.codes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * The best guess for a set of candidates.
+	 */
+	private static class Best {
+		private final int code;
+		private final double expectedRemaining;
+
+		private Best(int code, double expectedRemaining) {
+			this.code = code;
+			this.expectedRemaining = expectedRemaining;
+		}
+	}
+
+}
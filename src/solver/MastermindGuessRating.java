@@ -0,0 +1,210 @@
+package solver;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindGuessRating.java
+ *
+ *         Purpose: How good one guess was, as rated by MastermindGuessAnalyzer.
+ *         A guess is judged by how many of the codes still possible before it
+ *         was made it can be expected to rule out, compared with the best
+ *         guess available at that point, and by whether it could itself have
+ *         been the answer given the feedback so far.
+ *
+ *         Finding the best guess takes much longer than the rest, so a rating
+ *         can be made before it is known and compared with it later; until
+ *         then the best guess is null and the efficiency is NaN. If the
+ *         best guess cannot be found the rating stays that way, and
+ *         whenCompared() completes exceptionally instead.
+ *
+ */
+public class MastermindGuessRating {
+
+	private final String guess;
+	private final int guessNumber;
+	private final boolean consistent;
+	private final int candidatesBefore;
+	private final int candidatesAfter;
+	private final double expectedRemaining;
+	private final CompletableFuture<MastermindGuessRating> compared = new CompletableFuture<MastermindGuessRating>();
+	private volatile double bestExpectedRemaining = Double.NaN;
+	private volatile String bestGuess;
+
+	/**
+	 * Constructor for MastermindGuessRating that has not been compared with
+	 * the best guess yet.
+	 *
+	 * @param guess             the guess.
+	 * @param guessNumber       which guess of the game it was, from 1.
+	 * @param consistent        whether the guess could have been the answer.
+	 * @param candidatesBefore  the codes still possible before the guess.
+	 * @param candidatesAfter   the codes still possible after its feedback.
+	 * @param expectedRemaining the codes the guess leaves possible on average
+	 *                          over the candidates.
+	 */
+	public MastermindGuessRating(String guess, int guessNumber, boolean consistent, int candidatesBefore,
+			int candidatesAfter, double expectedRemaining) {
+		this.guess = guess;
+		this.guessNumber = guessNumber;
+		this.consistent = consistent;
+		this.candidatesBefore = candidatesBefore;
+		this.candidatesAfter = candidatesAfter;
+		this.expectedRemaining = expectedRemaining;
+	}
+
+	/**
+	 * Constructor for MastermindGuessRating that is already compared with the
+	 * best guess.
+	 *
+	 * @param guess                 the guess.
+	 * @param guessNumber           which guess of the game it was, from 1.
+	 * @param consistent            whether the guess could have been the
+	 *                              answer.
+	 * @param candidatesBefore      the codes still possible before the guess.
+	 * @param candidatesAfter       the codes still possible after its feedback.
+	 * @param expectedRemaining     the codes the guess leaves possible on
+	 *                              average over the candidates.
+	 * @param bestExpectedRemaining the same for the best guess available.
+	 * @param bestGuess             the best guess available.
+	 */
+	public MastermindGuessRating(String guess, int guessNumber, boolean consistent, int candidatesBefore,
+			int candidatesAfter, double expectedRemaining, double bestExpectedRemaining, String bestGuess) {
+		this(guess, guessNumber, consistent, candidatesBefore, candidatesAfter, expectedRemaining);
+		compare(bestExpectedRemaining, bestGuess);
+	}
+
+	/**
+	 * Fills in the best guess available and completes whenCompared(). Called
+	 * once, by the constructor or the analyzer that made the rating.
+	 *
+	 * @param bestExpectedRemaining the codes the best guess leaves possible on
+	 *                              average over the candidates.
+	 * @param bestGuess             the best guess available.
+	 */
+	void compare(double bestExpectedRemaining, String bestGuess) {
+		this.bestExpectedRemaining = bestExpectedRemaining;
+		this.bestGuess = bestGuess;
+		compared.complete(this);
+	}
+
+	/**
+	 * Completes whenCompared() exceptionally, when the best guess could not
+	 * be found. Called at most once, instead of compare(), by the analyzer
+	 * that made the rating.
+	 *
+	 * @param failure why the best guess could not be found.
+	 */
+	void compareFailed(Throwable failure) {
+		compared.completeExceptionally(failure);
+	}
+
+	/**
+	 * @return true once the rating has been compared with the best guess.
+	 */
+	public boolean isCompared() {
+		return compared.isDone() && !compared.isCompletedExceptionally();
+	}
+
+	/**
+	 * @return a future completed with this rating once it has been compared
+	 *         with the best guess, or completed exceptionally if the best
+	 *         guess could not be found.
+	 */
+	public CompletableFuture<MastermindGuessRating> whenCompared() {
+		return compared;
+	}
+
+	/**
+	 * @return the guess.
+	 */
+	public String getGuess() {
+		return guess;
+	}
+
+	/**
+	 * @return which guess of the game it was, from 1.
+	 */
+	public int getGuessNumber() {
+		return guessNumber;
+	}
+
+	/**
+	 * @return true if the guess agreed with all earlier feedback, i.e. it
+	 *         could have been the answer.
+	 */
+	public boolean isConsistent() {
+		return consistent;
+	}
+
+	/**
+	 * @return the number of codes still possible before the guess.
+	 */
+	public int getCandidatesBefore() {
+		return candidatesBefore;
+	}
+
+	/**
+	 * @return the number of codes still possible after the guess's feedback.
+	 */
+	public int getCandidatesAfter() {
+		return candidatesAfter;
+	}
+
+	/**
+	 * @return the number of codes the guess actually ruled out.
+	 */
+	public int getEliminated() {
+		return candidatesBefore - candidatesAfter;
+	}
+
+	/**
+	 * @return the number of codes the guess rules out on average, over every
+	 *         code that could have been the answer.
+	 */
+	public double getExpectedEliminated() {
+		return candidatesBefore - expectedRemaining;
+	}
+
+	/**
+	 * @return the number of codes the best guess rules out on average, or NaN
+	 *         until the rating is compared.
+	 */
+	public double getBestExpectedEliminated() {
+		return candidatesBefore - bestExpectedRemaining;
+	}
+
+	/**
+	 * @return the best guess available, or null until the rating is
+	 *         compared.
+	 */
+	public String getBestGuess() {
+		return bestGuess;
+	}
+
+	/**
+	 * @return the expected eliminations of the guess as a fraction of the
+	 *         best guess's, from 0 to 1, or NaN until the rating is compared.
+	 */
+	public double getEfficiency() {
+		double best = getBestExpectedEliminated();
+		if (Double.isNaN(best)) {
+			return Double.NaN;
+		}
+		return best <= 0 ? 1 : Math.min(1, getExpectedEliminated() / best);
+	}
+
+	@Override
+	public String toString() {
+		if (!isCompared()) {
+			return String.format("%d. %s: %d of %d ruled out, %.1f expected%s", guessNumber, guess, getEliminated(),
+					candidatesBefore, getExpectedEliminated(), consistent ? "" : ", inconsistent");
+		}
+		return String.format("%d. %s: %d of %d ruled out, %.1f expected vs %.1f for %s (%.0f%%)%s", guessNumber,
+				guess, getEliminated(), candidatesBefore, getExpectedEliminated(), getBestExpectedEliminated(),
+				bestGuess, getEfficiency() * 100, consistent ? "" : ", inconsistent");
+	}
+
+}
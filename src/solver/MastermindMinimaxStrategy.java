@@ -0,0 +1,179 @@
+package solver;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindMinimaxStrategy.java
+ *
+ *         Purpose: Knuth's minimax strategy. Every code is considered as a
+ *         guess, and the one whose worst feedback leaves the fewest
+ *         candidates is played. Ties go to a code that is still a candidate
+ *         (it might win outright), then to the lowest code. On the classic
+ *         board this never needs more than 5 guesses.
+ *
+ *         The strategy is deterministic, so the guess only depends on the
+ *         feedback received so far in the game. Guesses are remembered by that
+ *         feedback history and reused in later games, which means after a few
+ *         games almost every move is a lookup.
+ *
+ *         With symmetry reduction on (the default), only one guess from each
+ *         MastermindSymmetry class is scored against the candidates, and the
+ *         other guesses in the class reuse its result. Equivalent guesses
+ *         split the candidates identically and are either all candidates or
+ *         none, so the guess played is exactly the one the full search would
+ *         play.
+ *
+ *         The search scores every guess against the candidates once per move,
+ *         so it scores through the code space directly; a cache would work out
+ *         far more than it reads. The scorer is only used to filter the
+ *         candidates.
+ *
+ */
+public class MastermindMinimaxStrategy extends MastermindCandidateStrategy {
+
+	private final int[] partitionSizes;
+	private final boolean[] isCandidate;
+	private final HashMap<Long, Integer> guessByHistory = new HashMap<Long, Integer>();
+	private final boolean symmetryReduction;
+	private int[] classWorst;
+	private int[] guesses = new int[16];
+	private int numGuesses;
+	private long history;
+
+	/**
+	 * Constructor for MastermindMinimaxStrategy.
+	 *
+	 * @param space the board geometry to play on.
+	 */
+	public MastermindMinimaxStrategy(MastermindCodeSpace space) {
+		this(space, space);
+	}
+
+	/**
+	 * Constructor for MastermindMinimaxStrategy.
+	 *
+	 * @param space  the board geometry to play on.
+	 * @param scorer scores codes of the space.
+	 */
+	public MastermindMinimaxStrategy(MastermindCodeSpace space, MastermindScorer scorer) {
+		this(space, scorer, true);
+	}
+
+	/**
+	 * Constructor for MastermindMinimaxStrategy.
+	 *
+	 * @param space             the board geometry to play on.
+	 * @param scorer            scores codes of the space.
+	 * @param symmetryReduction true to score only one guess per symmetry class.
+	 */
+	public MastermindMinimaxStrategy(MastermindCodeSpace space, MastermindScorer scorer, boolean symmetryReduction) {
+		super(space, scorer);
+		this.symmetryReduction = symmetryReduction;
+		partitionSizes = new int[space.getFeedbackCount()];
+		isCandidate = new boolean[space.size()];
+	}
+
+	@Override
+	public void newGame() {
+		super.newGame();
+		history = 1;
+		numGuesses = 0;
+	}
+
+	@Override
+	public void feedback(String guess, int rightColorRightPlace, int rightColorWrongPlace) {
+		super.feedback(guess, rightColorRightPlace, rightColorWrongPlace);
+		if (numGuesses == guesses.length) {
+			guesses = Arrays.copyOf(guesses, numGuesses * 2);
+		}
+		guesses[numGuesses++] = space.fromString(guess);
+		// Each feedback is below 81, so 7 bits per guess; games longer than
+		// 9 guesses are never remembered.
+		history = history > 0 && history < (1L << 56) ? (history << 7) | space.feedback(rightColorRightPlace, rightColorWrongPlace) : -1;
+	}
+
+	@Override
+	protected int chooseGuess() {
+		if (numCandidates <= 2) {
+			return candidates[0];
+		}
+		if (history < 0) {
+			return bestGuess();
+		}
+		Integer guess = guessByHistory.get(history);
+		if (guess == null) {
+			guess = bestGuess();
+			guessByHistory.put(history, guess);
+		}
+		return guess;
+	}
+
+	/**
+	 * Scores every code against the candidates and returns the minimax guess.
+	 */
+	private int bestGuess() {
+		Arrays.fill(isCandidate, false);
+		for (int i = 0; i < numCandidates; i++) {
+			isCandidate[candidates[i]] = true;
+		}
+
+		MastermindSymmetry symmetry = null;
+		if (symmetryReduction) {
+			symmetry = new MastermindSymmetry(space, guesses, numGuesses);
+			if (symmetry.isTrivial()) {
+				symmetry = null;
+			} else if (classWorst == null) {
+				classWorst = new int[space.size()];
+			}
+		}
+
+		int best = -1;
+		int bestWorst = Integer.MAX_VALUE;
+		for (int guess = 0; guess < space.size(); guess++) {
+			int worst;
+			if (symmetry == null) {
+				worst = worstCase(guess, bestWorst);
+			} else {
+				// The canonical form is never above the guess, so its class has
+				// already been scored unless this guess is the canonical form.
+				// A result cut short by an earlier limit is still above the
+				// current limit, since the limit only goes down.
+				int canonical = symmetry.canonical(guess);
+				if (canonical == guess) {
+					classWorst[guess] = worstCase(guess, bestWorst);
+				}
+				worst = classWorst[canonical];
+			}
+			if (worst < bestWorst || (worst == bestWorst && isCandidate[guess] && !isCandidate[best])) {
+				best = guess;
+				bestWorst = worst;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the size of the largest partition the guess splits the
+	 * candidates into. Gives up early once it is clear the guess cannot beat
+	 * the limit. Scores through the space, as each cell is read only once.
+	 */
+	private int worstCase(int guess, int limit) {
+		Arrays.fill(partitionSizes, 0);
+		int worst = 0;
+		for (int i = 0; i < numCandidates; i++) {
+			int size = ++partitionSizes[space.score(guess, candidates[i])];
+			if (size > worst) {
+				worst = size;
+				if (worst > limit) {
+					return worst;
+				}
+			}
+		}
+		return worst;
+	}
+
+}
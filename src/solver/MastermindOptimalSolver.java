@@ -0,0 +1,448 @@
+package solver;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindOptimalSolver.java
+ *
+ *         Purpose: Finds the strategy that minimizes the expected number of
+ *         guesses, assuming every secret is equally likely (4.3403 guesses,
+ *         5625 in total, on the classic board). The result is a
+ *         MastermindDecisionTree.
+ *
+ *         The cost of a set of candidates is the total number of guesses
+ *         needed to solve every one of them. It is found by branch and bound:
+ *
+ *         - A lower bound on the cost of n candidates comes from the best
+ *         split imaginable: a guess that is one of them and spreads the rest
+ *         as evenly as possible over every possible feedback.
+ *
+ *         - Guesses are tried in order of the bound their split gives, and the
+ *         search stops as soon as that bound cannot beat the best guess found.
+ *         Each feedback class is searched with the budget that is left, so a
+ *         subproblem can give up as soon as it is clear it is too expensive.
+ *
+ *         - Guesses that do not split the candidates and cannot win are
+ *         skipped, and near the top of the tree only one guess per
+ *         MastermindSymmetry class is tried.
+ *
+ *         - Results are memoized by candidate set: the exact cost and best
+ *         guess when known, or else the best lower bound proved so far.
+ *
+ *         The first guesses are searched in parallel and share the memo and
+ *         the best cost found so far. Among first guesses with the same cost
+ *         the lowest code wins, and the memo never trades an exact result for
+ *         a bound, so the tree comes out the same however the threads run.
+ *
+ */
+public class MastermindOptimalSolver {
+
+	private static final int SYMMETRY_DEPTH = 2;
+	private static final int MAX_TABLE_CODES = 4096;
+
+	private final MastermindCodeSpace space;
+	private final int size;
+	private final int feedbackCount;
+	private final int win;
+	private final byte[] table;
+	private final MastermindScorer scorer;
+	private final int[] lowerBounds;
+	private final ConcurrentHashMap<CandidateSet, Result> memo = new ConcurrentHashMap<CandidateSet, Result>();
+	private final AtomicLong nodesSearched = new AtomicLong();
+
+	/**
+	 * Constructor for MastermindOptimalSolver. On boards of up to 4096 codes
+	 * the full feedback table is built up front; bigger boards score through
+	 * a MastermindFeedbackCache.
+	 *
+	 * @param space the board geometry.
+	 */
+	public MastermindOptimalSolver(MastermindCodeSpace space) {
+		this.space = space;
+		this.size = space.size();
+		this.feedbackCount = space.getFeedbackCount();
+		this.win = space.getWinningFeedback();
+
+		if (size <= MAX_TABLE_CODES) {
+			table = new byte[size * size];
+			for (int guess = 0; guess < size; guess++) {
+				for (int secret = 0; secret < size; secret++) {
+					table[guess * size + secret] = (byte) space.score(guess, secret);
+				}
+			}
+			scorer = space;
+		} else {
+			table = null;
+			scorer = MastermindStrategies.getScorer(space);
+		}
+
+		// lowerBounds[n] = n + the cheapest spread of n - 1 candidates over
+		// every non-winning feedback. The bound is convex, so the most even
+		// spread is the cheapest.
+		int classes = feedbackCount - 1;
+		lowerBounds = new int[size + 1];
+		for (int n = 1; n <= size; n++) {
+			int rest = n - 1;
+			int each = rest / classes;
+			int extra = rest % classes;
+			lowerBounds[n] = n + extra * lowerBounds[each + 1] + (classes - extra) * lowerBounds[each];
+		}
+	}
+
+	/**
+	 * Solves a board from the command line, saves the tree and prints the
+	 * average number of guesses it takes.
+	 *
+	 * @param pegs   the number of pegs.
+	 * @param colors the number of colors.
+	 * @param file   the file to save the tree to.
+	 * @throws IOException if the tree cannot be saved.
+	 */
+	public static void runOptimal(int pegs, int colors, Path file) throws IOException {
+		MastermindCodeSpace space = new MastermindCodeSpace(pegs, colors);
+		MastermindOptimalSolver solver = new MastermindOptimalSolver(space);
+		long start = System.nanoTime();
+		MastermindDecisionTree tree = solver.solve();
+		tree.write(file);
+		long total = tree.getTotalGuesses();
+		System.out.printf("first guess %s, mean %.4f (%d / %d), %d sets searched, %.1f s%n",
+				space.toString(tree.getGuess(0)), (double) total / space.size(), total, space.size(),
+				solver.getNodesSearched(), (System.nanoTime() - start) / 1e9);
+		System.out.println(tree.getNodeCount() + " nodes written to " + file);
+	}
+
+	/**
+	 * Finds the optimal strategy for the whole board.
+	 *
+	 * @return the strategy as a decision tree.
+	 */
+	public MastermindDecisionTree solve() {
+		int[] all = new int[size];
+		for (int i = 0; i < size; i++) {
+			all[i] = i;
+		}
+
+		Guess[] guesses = rankGuesses(all, new int[0], 0);
+		int[] best = { Integer.MAX_VALUE, Integer.MAX_VALUE };
+		Arrays.stream(guesses).parallel().forEach(guess -> {
+			// A guess lower than the best so far also wins by tying it, so it
+			// needs its exact cost up to and including the best.
+			int budget;
+			synchronized (best) {
+				budget = best[0] == Integer.MAX_VALUE || guess.code > best[1] ? best[0] : best[0] + 1;
+			}
+			if (guess.bound >= budget) {
+				return;
+			}
+			int cost = evaluate(all, guess.code, budget, new int[] { guess.code }, 1);
+			synchronized (best) {
+				if (cost < best[0] || cost == best[0] && guess.code < best[1]) {
+					best[0] = cost;
+					best[1] = guess.code;
+				}
+			}
+		});
+		if (size > 2) {
+			memo.merge(new CandidateSet(all), new Result(best[0], best[1]), MastermindOptimalSolver::stronger);
+		}
+
+		TreeBuilder builder = new TreeBuilder();
+		builder.build(all, new int[0]);
+		return builder.toTree();
+	}
+
+	/**
+	 * Returns the cost of solving every candidate in the set if it is below
+	 * the budget, or else some value that is at least the budget.
+	 */
+	private int solve(int[] set, int budget, int[] history, int depth) {
+		int n = set.length;
+		if (n <= 2) {
+			return 2 * n - 1;
+		}
+		if (lowerBounds[n] >= budget) {
+			return lowerBounds[n];
+		}
+		nodesSearched.incrementAndGet();
+
+		CandidateSet key = new CandidateSet(set);
+		Result known = memo.get(key);
+		int lowerBound = lowerBounds[n];
+		if (known != null) {
+			if (known.guess >= 0 || known.cost >= budget) {
+				return known.cost;
+			}
+			lowerBound = known.cost;
+		}
+
+		int best = budget;
+		int bestGuess = -1;
+		for (Guess guess : rankGuesses(set, history, depth)) {
+			if (guess.bound >= best) {
+				break;
+			}
+			int cost = evaluate(set, guess.code, best, append(history, guess.code), depth + 1);
+			if (cost < best) {
+				best = cost;
+				bestGuess = guess.code;
+			}
+		}
+
+		if (bestGuess >= 0) {
+			memo.merge(key, new Result(best, bestGuess), MastermindOptimalSolver::stronger);
+			return best;
+		}
+		memo.merge(key, new Result(Math.max(budget, lowerBound), -1), MastermindOptimalSolver::stronger);
+		return budget;
+	}
+
+	/**
+	 * Picks which of two results for the same set to keep in the memo: an
+	 * exact result over a bound, and the higher of two bounds. Another
+	 * thread may have solved the set while this one only proved a bound.
+	 */
+	private static Result stronger(Result known, Result found) {
+		if (known.guess >= 0) {
+			return known;
+		}
+		if (found.guess >= 0) {
+			return found;
+		}
+		return known.cost >= found.cost ? known : found;
+	}
+
+	/**
+	 * Returns the cost of guessing code first and then playing optimally, if
+	 * it is below the budget, or else some value that is at least the budget.
+	 */
+	private int evaluate(int[] set, int code, int budget, int[] history, int depth) {
+		int[][] classes = split(set, code);
+		int total = set.length;
+		int rest = 0;
+		for (int[] feedbackClass : classes) {
+			rest += lowerBounds[feedbackClass.length];
+		}
+		if (total + rest >= budget) {
+			return budget;
+		}
+		for (int[] feedbackClass : classes) {
+			rest -= lowerBounds[feedbackClass.length];
+			total += solve(feedbackClass, budget - total - rest, history, depth);
+			if (total + rest >= budget) {
+				return budget;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Lists the guesses worth trying for a set of candidates, most promising
+	 * first, each with the lower bound on its cost.
+	 */
+	private Guess[] rankGuesses(int[] set, int[] history, int depth) {
+		MastermindSymmetry symmetry = null;
+		if (depth <= SYMMETRY_DEPTH) {
+			symmetry = new MastermindSymmetry(space, history, history.length);
+			if (symmetry.isTrivial()) {
+				symmetry = null;
+			}
+		}
+
+		int[] counts = new int[feedbackCount];
+		ArrayList<Guess> guesses = new ArrayList<Guess>();
+		for (int code = 0; code < size; code++) {
+			if (symmetry != null && symmetry.canonical(code) != code) {
+				continue;
+			}
+			Arrays.fill(counts, 0);
+			for (int secret : set) {
+				counts[score(code, secret)]++;
+			}
+			int bound = set.length;
+			int classes = 0;
+			for (int feedback = 0; feedback < feedbackCount; feedback++) {
+				if (counts[feedback] > 0 && feedback != win) {
+					bound += lowerBounds[counts[feedback]];
+					classes++;
+				}
+			}
+			boolean candidate = counts[win] > 0;
+			if (candidate || classes > 1) {
+				guesses.add(new Guess(code, bound, candidate));
+			}
+		}
+
+		Guess[] ranked = guesses.toArray(new Guess[0]);
+		Arrays.sort(ranked, (a, b) -> a.bound != b.bound ? Integer.compare(a.bound, b.bound)
+				: a.candidate != b.candidate ? (a.candidate ? -1 : 1) : Integer.compare(a.code, b.code));
+		return ranked;
+	}
+
+	/**
+	 * Splits the candidates by the feedback the guess gets against each,
+	 * leaving out the winning one. Classes come largest first, since they
+	 * decide early whether the guess is worth finishing.
+	 */
+	private int[][] split(int[] set, int code) {
+		int[] counts = new int[feedbackCount];
+		for (int secret : set) {
+			counts[score(code, secret)]++;
+		}
+		int[][] byFeedback = new int[feedbackCount][];
+		int classes = 0;
+		for (int feedback = 0; feedback < feedbackCount; feedback++) {
+			if (counts[feedback] > 0 && feedback != win) {
+				byFeedback[feedback] = new int[counts[feedback]];
+				classes++;
+			}
+			counts[feedback] = 0;
+		}
+		for (int secret : set) {
+			int feedback = score(code, secret);
+			if (feedback != win) {
+				byFeedback[feedback][counts[feedback]++] = secret;
+			}
+		}
+
+		int[][] result = new int[classes][];
+		int i = 0;
+		for (int[] feedbackClass : byFeedback) {
+			if (feedbackClass != null) {
+				result[i++] = feedbackClass;
+			}
+		}
+		Arrays.sort(result, (a, b) -> Integer.compare(b.length, a.length));
+		return result;
+	}
+
+	/**
+	 * Scores a guess against a secret, from the table if there is one or the
+	 * cache otherwise.
+	 */
+	private int score(int guess, int secret) {
+		return table != null ? table[guess * size + secret] : scorer.score(guess, secret);
+	}
+
+	/**
+	 * Returns history with one more guess on the end.
+	 */
+	private static int[] append(int[] history, int code) {
+		int[] longer = Arrays.copyOf(history, history.length + 1);
+		longer[history.length] = code;
+		return longer;
+	}
+
+	/**
+	 * @return the number of candidate sets searched so far.
+	 */
+	public long getNodesSearched() {
+		return nodesSearched.get();
+	}
+
+	/**
+	 * A guess being considered and the lower bound on its cost.
+	 */
+	private static class Guess {
+		private final int code;
+		private final int bound;
+		private final boolean candidate;
+
+		private Guess(int code, int bound, boolean candidate) {
+			this.code = code;
+			this.bound = bound;
+			this.candidate = candidate;
+		}
+	}
+
+	/**
+	 * A memoized result: the exact cost and best guess, or a lower bound on
+	 * the cost with guess -1.
+	 */
+	private static class Result {
+		private final int cost;
+		private final int guess;
+
+		private Result(int cost, int guess) {
+			this.cost = cost;
+			this.guess = guess;
+		}
+	}
+
+	/**
+	 * A sorted set of candidate codes, usable as a map key.
+	 */
+	private static class CandidateSet {
+		private final int[] codes;
+		private final int hash;
+
+		private CandidateSet(int[] codes) {
+			this.codes = codes;
+			this.hash = Arrays.hashCode(codes);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof CandidateSet && Arrays.equals(codes, ((CandidateSet) other).codes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * Lays the optimal strategy out as a decision tree, re-solving any set
+	 * whose best guess is not in the memo.
+	 */
+	private class TreeBuilder {
+		private int[] guesses = new int[64];
+		private int[] children = new int[64 * feedbackCount];
+		private int nodes;
+
+		/**
+		 * Adds the node for a set of candidates and everything below it.
+		 */
+		private int build(int[] set, int[] history) {
+			int code;
+			if (set.length <= 2) {
+				code = set[0];
+			} else {
+				Result result = memo.get(new CandidateSet(set));
+				if (result == null || result.guess < 0) {
+					solve(set, Integer.MAX_VALUE, history, history.length);
+					result = memo.get(new CandidateSet(set));
+				}
+				code = result.guess;
+			}
+
+			int node = nodes++;
+			if (node == guesses.length) {
+				guesses = Arrays.copyOf(guesses, node * 2);
+				children = Arrays.copyOf(children, node * 2 * feedbackCount);
+			}
+			guesses[node] = code;
+			Arrays.fill(children, node * feedbackCount, (node + 1) * feedbackCount, -1);
+			for (int[] feedbackClass : split(set, code)) {
+				int feedback = score(code, feedbackClass[0]);
+				int child = build(feedbackClass, append(history, code));
+				children[node * feedbackCount + feedback] = child;
+			}
+			return node;
+		}
+
+		private MastermindDecisionTree toTree() {
+			return new MastermindDecisionTree(space, Arrays.copyOf(guesses, nodes),
+					Arrays.copyOf(children, nodes * feedbackCount));
+		}
+	}
+
+}
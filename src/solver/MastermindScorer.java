@@ -0,0 +1,61 @@
+package solver;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindScorer.java
+ *
+ *         Purpose: Something that can score packed codes of a
+ *         MastermindCodeSpace: the code space itself, which works it out each
+ *         time, or a MastermindFeedbackCache, which looks it up. Strategies
+ *         take a scorer so that the same solver code can run on either.
+ *
+ */
+public interface MastermindScorer {
+
+	/**
+	 * Scores a guess against a secret.
+	 *
+	 * @param guess  the guessed code.
+	 * @param secret the secret code.
+	 * @return the packed feedback, as from MastermindCodeSpace.feedback().
+	 */
+	int score(int guess, int secret);
+
+	/**
+	 * Scores a guess against each of a number of secrets.
+	 *
+	 * @param guess   the guessed code.
+	 * @param secrets the secret codes.
+	 * @param count   the number of secrets in use at the front of the array.
+	 * @param results where the packed feedback for each secret is put.
+	 */
+	default void scoreAll(int guess, int[] secrets, int count, int[] results) {
+		for (int i = 0; i < count; i++) {
+			results[i] = score(guess, secrets[i]);
+		}
+	}
+
+	/**
+	 * Keeps only the candidates that the guess scores the given feedback
+	 * against, moving them to the front of the array in the same order.
+	 *
+	 * @param guess      the guessed code.
+	 * @param feedback   the packed feedback the guess received.
+	 * @param candidates the candidate codes.
+	 * @param count      the number of candidates in use at the front of the
+	 *                   array.
+	 * @return the number of candidates kept.
+	 */
+	default int filter(int guess, int feedback, int[] candidates, int count) {
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			if (score(guess, candidates[i]) == feedback) {
+				candidates[kept++] = candidates[i];
+			}
+		}
+		return kept;
+	}
+
+}
@@ -0,0 +1,108 @@
+package solver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindStrategies.java
+ *
+ *         Purpose: Looks up the built-in strategies by name, so tools like
+ *         the arena can be told which bots to run from the command line.
+ *
+ *         The "optimal" strategy plays the tree MastermindOptimalSolver finds
+ *         for the board. Solving takes a while (over half a minute on the
+ *         classic board), so each board is solved once, the first time one of
+ *         its optimal bots is made, and the tree is shared by every bot after
+ *         that.
+ *
+ */
+public class MastermindStrategies {
+
+	public static final int MAX_UNCACHED_CODES = 4096;
+
+	private static final List<String> NAMES = Arrays.asList("consistent", "random", "minimax",
+			"optimal");
+	private static final ConcurrentHashMap<List<Integer>, MastermindDecisionTree> optimalTrees =
+			new ConcurrentHashMap<List<Integer>, MastermindDecisionTree>();
+
+	/**
+	 * @return the names of the built-in strategies.
+	 */
+	public static List<String> getNames() {
+		return NAMES;
+	}
+
+	/**
+	 * Returns the scorer strategies on a board should share: the board itself
+	 * when it has at most MAX_UNCACHED_CODES codes and scoring from scratch is
+	 * cheap, or a new MastermindFeedbackCache with row tiles for anything
+	 * bigger, so repeated guesses filter from the cache.
+	 *
+	 * @param space the board geometry.
+	 * @return the scorer.
+	 */
+	public static MastermindScorer getScorer(MastermindCodeSpace space) {
+		if (space.size() <= MAX_UNCACHED_CODES) {
+			return space;
+		}
+		return new MastermindFeedbackCache(space);
+	}
+
+	/**
+	 * Returns the optimal decision tree for a board, solving it the first time
+	 * it is asked for and handing out the same tree after that.
+	 *
+	 * @param space the board geometry.
+	 * @return the tree.
+	 */
+	public static MastermindDecisionTree getOptimalTree(MastermindCodeSpace space) {
+		return optimalTrees.computeIfAbsent(Arrays.asList(space.getPegs(), space.getColors()),
+				key -> new MastermindOptimalSolver(space).solve());
+	}
+
+	/**
+	 * Returns a factory that makes new instances of the named strategy.
+	 *
+	 * @param name  the name of the strategy, one of getNames().
+	 * @param space the board geometry the strategy plays on.
+	 * @return a factory for the strategy.
+	 * @throws IllegalArgumentException if there is no strategy with that name.
+	 */
+	public static Supplier<MastermindStrategy> getFactory(String name, MastermindCodeSpace space) {
+		return getFactory(name, space, space);
+	}
+
+	/**
+	 * Returns a factory that makes new instances of the named strategy, all
+	 * scoring with the given scorer (which may be shared, e.g. a
+	 * MastermindFeedbackCache).
+	 *
+	 * @param name   the name of the strategy, one of getNames().
+	 * @param space  the board geometry the strategy plays on.
+	 * @param scorer scores codes of the space.
+	 * @return a factory for the strategy.
+	 * @throws IllegalArgumentException if there is no strategy with that name.
+	 */
+	public static Supplier<MastermindStrategy> getFactory(String name, MastermindCodeSpace space,
+			MastermindScorer scorer) {
+		switch (name) {
+		case "consistent":
+			return () -> new MastermindConsistentStrategy(space, scorer, null);
+		case "random":
+			return () -> new MastermindConsistentStrategy(space, scorer, new Random());
+		case "minimax":
+			return () -> new MastermindMinimaxStrategy(space, scorer);
+		case "optimal":
+			return () -> new MastermindDecisionTreeStrategy(getOptimalTree(space));
+		default:
+			throw new IllegalArgumentException("Strategy '" + name + "' is not valid; choose one of " + NAMES + ".");
+		}
+	}
+
+}
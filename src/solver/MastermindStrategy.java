@@ -0,0 +1,54 @@
+package solver;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindStrategy.java
+ *
+ *         Purpose: A bot that plays Mastermind. The caller starts each game
+ *         with newGame(), asks for guesses with nextGuess(), and reports the
+ *         score of every wrong guess with feedback(). Strategies keep state
+ *         for the current game, so one instance must only be used by one
+ *         thread at a time.
+ *
+ */
+public interface MastermindStrategy {
+
+	/**
+	 * Forgets the previous game and gets ready to play a new one.
+	 */
+	void newGame();
+
+	/**
+	 * Forgets the previous game and gets ready to play a new one, seeding any
+	 * random choices the strategy makes so the game can be replayed.
+	 * Strategies that make no random choices just call newGame().
+	 *
+	 * @param seed the seed for this game.
+	 */
+	default void newGame(long seed) {
+		newGame();
+	}
+
+	/**
+	 * Returns the next guess to play.
+	 *
+	 * @return the guess as a String of color characters.
+	 * @throws IllegalStateException if no code fits the feedback so far, which
+	 *                               means the feedback was inconsistent.
+	 */
+	String nextGuess();
+
+	/**
+	 * Tells the strategy how its last guess was scored.
+	 *
+	 * @param guess                the guess that was scored.
+	 * @param rightColorRightPlace the number of correct colors in the correct
+	 *                             place.
+	 * @param rightColorWrongPlace the number of correct colors in the wrong
+	 *                             place.
+	 */
+	void feedback(String guess, int rightColorRightPlace, int rightColorWrongPlace);
+
+}
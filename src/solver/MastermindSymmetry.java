@@ -0,0 +1,220 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ *
+ * @author Kaushal Bhat
+ *
+ *         File: MastermindSymmetry.java
+ *
+ *         Purpose: Finds the guesses that are equivalent given the guesses
+ *         played so far, so a solver only has to evaluate one guess from each
+ *         class.
+ *
+ *         Permuting the positions and renaming the colors of both a guess and
+ *         a secret does not change the feedback. So any such permutation that
+ *         maps every guess played so far to itself also maps the set of
+ *         candidates to itself, and two guesses it maps onto each other split
+ *         the candidates in exactly the same way. This class finds those
+ *         permutations: every position permutation for which a consistent
+ *         renaming of the used colors exists, combined with any renaming of
+ *         the colors no guess has used yet.
+ *
+ *         The canonical form of a code is the lowest code it can be mapped
+ *         to. Before any guess all position and color permutations apply, so
+ *         on the classic board every first guess is one of only five classes:
+ *         rrrr, rrro, rroo, rroy and royg.
+ *
+ *         Instances keep scratch arrays and are not thread-safe.
+ *
+ */
+public class MastermindSymmetry {
+
+	private final MastermindCodeSpace space;
+	private final int pegs;
+	private final int colors;
+	private final int[][] inversePositions;
+	private final int[][] colorMaps;
+	private final int[] freeColors;
+	private final int[] digits;
+	private final int[] labels;
+	private final int[] labelStamps;
+	private int stamp;
+
+	/**
+	 * Constructor for MastermindSymmetry.
+	 *
+	 * @param space   the board geometry.
+	 * @param history the codes guessed so far.
+	 * @param length  the number of guesses at the front of history to use.
+	 */
+	public MastermindSymmetry(MastermindCodeSpace space, int[] history, int length) {
+		this.space = space;
+		this.pegs = space.getPegs();
+		this.colors = space.getColors();
+		this.digits = new int[pegs];
+		this.labels = new int[colors];
+		this.labelStamps = new int[colors];
+
+		int[][] guessDigits = new int[length][pegs];
+		boolean[] used = new boolean[colors];
+		for (int g = 0; g < length; g++) {
+			for (int i = 0; i < pegs; i++) {
+				guessDigits[g][i] = space.colorAt(history[g], i);
+				used[guessDigits[g][i]] = true;
+			}
+		}
+
+		ArrayList<int[]> inverses = new ArrayList<int[]>();
+		ArrayList<int[]> maps = new ArrayList<int[]>();
+		for (int[] permutation : permutations(pegs)) {
+			int[] colorMap = colorMapFor(permutation, guessDigits);
+			if (colorMap != null) {
+				int[] inverse = new int[pegs];
+				for (int i = 0; i < pegs; i++) {
+					inverse[permutation[i]] = i;
+				}
+				inverses.add(inverse);
+				maps.add(colorMap);
+			}
+		}
+		this.inversePositions = inverses.toArray(new int[0][]);
+		this.colorMaps = maps.toArray(new int[0][]);
+
+		int free = 0;
+		int[] freeColors = new int[colors];
+		for (int c = 0; c < colors; c++) {
+			if (!used[c]) {
+				freeColors[free++] = c;
+			}
+		}
+		this.freeColors = Arrays.copyOf(freeColors, free);
+	}
+
+	/**
+	 * Returns the renaming of the used colors that, together with the position
+	 * permutation, maps every guess to itself; or null if there is none.
+	 * Colors no guess has used map to -1.
+	 */
+	private int[] colorMapFor(int[] permutation, int[][] guessDigits) {
+		int[] colorMap = new int[colors];
+		int[] inverse = new int[colors];
+		Arrays.fill(colorMap, -1);
+		Arrays.fill(inverse, -1);
+		for (int[] guess : guessDigits) {
+			for (int i = 0; i < pegs; i++) {
+				int from = guess[i];
+				int to = guess[permutation[i]];
+				if (colorMap[from] < 0 && inverse[to] < 0) {
+					colorMap[from] = to;
+					inverse[to] = from;
+				} else if (colorMap[from] != to) {
+					return null;
+				}
+			}
+		}
+		return colorMap;
+	}
+
+	/**
+	 * Returns every permutation of 0 to n - 1.
+	 */
+	private static ArrayList<int[]> permutations(int n) {
+		ArrayList<int[]> result = new ArrayList<int[]>();
+		int[] permutation = new int[n];
+		for (int i = 0; i < n; i++) {
+			permutation[i] = i;
+		}
+		permute(permutation, 0, result);
+		return result;
+	}
+
+	/**
+	 * Adds every ordering of permutation[k..] to result.
+	 */
+	private static void permute(int[] permutation, int k, ArrayList<int[]> result) {
+		if (k == permutation.length) {
+			result.add(permutation.clone());
+			return;
+		}
+		for (int i = k; i < permutation.length; i++) {
+			int swap = permutation[k];
+			permutation[k] = permutation[i];
+			permutation[i] = swap;
+			permute(permutation, k + 1, result);
+			permutation[i] = permutation[k];
+			permutation[k] = swap;
+		}
+	}
+
+	/**
+	 * @return true if every code is in a class of its own, i.e. there is
+	 *         nothing to be saved.
+	 */
+	public boolean isTrivial() {
+		return colorMaps.length == 1 && freeColors.length <= 1;
+	}
+
+	/**
+	 * Returns the canonical form of a code: the lowest code any of the
+	 * symmetries maps it to. Two codes are equivalent if and only if they have
+	 * the same canonical form, and the canonical form is never higher than the
+	 * code itself.
+	 *
+	 * @param code the code.
+	 * @return the canonical form.
+	 */
+	public int canonical(int code) {
+		for (int i = pegs - 1; i >= 0; i--) {
+			digits[i] = code % colors;
+			code /= colors;
+		}
+
+		int best = Integer.MAX_VALUE;
+		for (int s = 0; s < colorMaps.length; s++) {
+			int[] inverse = inversePositions[s];
+			int[] colorMap = colorMaps[s];
+			stamp++;
+			int nextFree = 0;
+			int image = 0;
+			for (int j = 0; j < pegs; j++) {
+				int color = digits[inverse[j]];
+				int mapped = colorMap[color];
+				if (mapped < 0) {
+					// Free colors are renamed in order of first appearance, to
+					// the lowest free colors, which gives the lowest image.
+					if (labelStamps[color] != stamp) {
+						labelStamps[color] = stamp;
+						labels[color] = freeColors[nextFree++];
+					}
+					mapped = labels[color];
+				}
+				image = image * colors + mapped;
+			}
+			if (image < best) {
+				best = image;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns one code from each class: the codes that are their own
+	 * canonical form, in ascending order.
+	 *
+	 * @return the representatives.
+	 */
+	public int[] getRepresentatives() {
+		int[] representatives = new int[space.size()];
+		int count = 0;
+		for (int code = 0; code < space.size(); code++) {
+			if (isTrivial() || canonical(code) == code) {
+				representatives[count++] = code;
+			}
+		}
+		return Arrays.copyOf(representatives, count);
+	}
+
+}